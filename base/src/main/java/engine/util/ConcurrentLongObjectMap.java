@@ -0,0 +1,356 @@
+package engine.util;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map with primitive long keys which may be read and written by several threads, e.g. the chunks of a world.
+ * <p>
+ * The map is split into segments, each an open addressing table guarded by its own lock for writes. Reads take no lock:
+ * the key of a slot never changes once written, and its value is published with release semantics after the key. A
+ * removed value leaves a tombstone which is only cleared when the table is rebuilt, so that a reader never sees a slot
+ * taken by another key. Null values are not permitted.
+ * <p>
+ * Iteration is weakly consistent: it never throws {@link java.util.ConcurrentModificationException} and may or may not
+ * reflect the writes made meanwhile.
+ */
+@ThreadSafe
+public final class ConcurrentLongObjectMap<V> {
+
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private static final Object TOMBSTONE = new Object();
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    @SuppressWarnings("unchecked")
+    private final Segment<V>[] segments = new Segment[SEGMENT_COUNT];
+    private final Values values = new Values();
+
+    public ConcurrentLongObjectMap() {
+        this(16);
+    }
+
+    public ConcurrentLongObjectMap(int initialCapacity) {
+        int segmentCapacity = HashCommon.arraySize(Math.max(1, initialCapacity / SEGMENT_COUNT), LOAD_FACTOR);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    private static long hash(long key) {
+        return HashCommon.mix(key);
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    @Nullable
+    public V get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value, or null if there was none
+     */
+    @Nullable
+    public V put(long key, @Nonnull V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * @return the current value, or null if the value has been put
+     */
+    @Nullable
+    public V putIfAbsent(long key, @Nonnull V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * @return the removed value, or null if there was none
+     */
+    @Nullable
+    public V remove(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Remove the key only if it is mapped to the value.
+     */
+    public boolean remove(long key, @Nonnull V value) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (Segment<V> segment : segments) {
+            if (segment.size != 0) return false;
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return a live view of the values, which does not support adding
+     */
+    public Collection<V> values() {
+        return values;
+    }
+
+    public void forEach(@Nonnull EntryConsumer<? super V> consumer) {
+        for (Segment<V> segment : segments) {
+            segment.forEach(consumer);
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+        private final int mask;
+        /**
+         * The slots which have been written, including the tombstones. Guarded by the segment.
+         */
+        private int used;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private Object getValue(int slot) {
+            return VALUES.getAcquire(values, slot);
+        }
+    }
+
+    private static final class Segment<V> {
+        private volatile Table table;
+        private volatile int size;
+
+        private Segment(int capacity) {
+            this.table = new Table(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key, long hash) {
+            Table table = this.table;
+            long[] keys = table.keys;
+            for (int slot = (int) hash & table.mask; ; slot = (slot + 1) & table.mask) {
+                Object value = table.getValue(slot);
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return value == TOMBSTONE ? null : (V) value;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            Table table = this.table;
+            int slot = (int) hash & table.mask;
+            for (; ; slot = (slot + 1) & table.mask) {
+                Object current = table.values[slot];
+                if (current == null) {
+                    break;
+                }
+                if (table.keys[slot] == key) {
+                    if (current != TOMBSTONE) {
+                        if (!onlyIfAbsent) {
+                            VALUES.setRelease(table.values, slot, value);
+                        }
+                        return (V) current;
+                    }
+                    VALUES.setRelease(table.values, slot, value);
+                    size++;
+                    return null;
+                }
+            }
+            // The key is written before the value is published
+            table.keys[slot] = key;
+            VALUES.setRelease(table.values, slot, value);
+            size++;
+            if (++table.used > (table.mask + 1) * LOAD_FACTOR) {
+                rehash();
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V remove(long key, long hash, V expected) {
+            Table table = this.table;
+            for (int slot = (int) hash & table.mask; ; slot = (slot + 1) & table.mask) {
+                Object current = table.values[slot];
+                if (current == null) {
+                    return null;
+                }
+                if (table.keys[slot] == key) {
+                    if (current == TOMBSTONE || (expected != null && current != expected)) {
+                        return null;
+                    }
+                    VALUES.setRelease(table.values, slot, TOMBSTONE);
+                    size--;
+                    return (V) current;
+                }
+            }
+        }
+
+        synchronized void clear() {
+            table = new Table(table.mask + 1);
+            size = 0;
+        }
+
+        /**
+         * Rebuild the table without the tombstones, growing it if the live entries need it.
+         */
+        private void rehash() {
+            Table old = this.table;
+            // The live entries take at most half of the load, so that rehashes stay rare
+            Table rebuilt = new Table(Math.max(old.mask + 1, HashCommon.arraySize(size, LOAD_FACTOR / 2)));
+            for (int i = 0; i <= old.mask; i++) {
+                Object value = old.values[i];
+                if (value == null || value == TOMBSTONE) continue;
+                long key = old.keys[i];
+                int slot = (int) hash(key) & rebuilt.mask;
+                while (rebuilt.values[slot] != null) {
+                    slot = (slot + 1) & rebuilt.mask;
+                }
+                rebuilt.keys[slot] = key;
+                rebuilt.values[slot] = value;
+                rebuilt.used++;
+            }
+            // Published by the volatile write
+            this.table = rebuilt;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(EntryConsumer<? super V> consumer) {
+            Table table = this.table;
+            for (int slot = 0; slot <= table.mask; slot++) {
+                Object value = table.getValue(slot);
+                if (value != null && value != TOMBSTONE) {
+                    consumer.accept(table.keys[slot], (V) value);
+                }
+            }
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentLongObjectMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentLongObjectMap.this.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLongObjectMap.this.clear();
+        }
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private int segment = -1;
+        private Table table;
+        private int slot;
+        private V next;
+
+        private ValueIterator() {
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (true) {
+                if (table != null) {
+                    while (slot <= table.mask) {
+                        Object value = table.getValue(slot++);
+                        if (value != null && value != TOMBSTONE) {
+                            next = (V) value;
+                            return;
+                        }
+                    }
+                }
+                if (++segment >= SEGMENT_COUNT) {
+                    return;
+                }
+                table = segments[segment].table;
+                slot = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V value = next;
+            advance();
+            return value;
+        }
+    }
+}
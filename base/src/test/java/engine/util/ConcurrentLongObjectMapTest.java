@@ -0,0 +1,99 @@
+package engine.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentLongObjectMapTest {
+
+    @Test
+    public void putGetRemove() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        assertNull(map.put(0, "a"));
+        assertEquals("a", map.put(0, "b"));
+        assertEquals("b", map.putIfAbsent(0, "c"));
+        assertNull(map.putIfAbsent(-1, "d"));
+        assertEquals("b", map.get(0));
+        assertEquals("d", map.get(-1));
+        assertEquals(2, map.size());
+
+        assertFalse(map.remove(0, "a"));
+        assertEquals("b", map.remove(0));
+        assertNull(map.get(0));
+        assertEquals("e", map.getOrDefault(0, "e"));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void growAndChurn() {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        for (long i = 0; i < 10000; i++) {
+            map.put(i << 21, i);
+        }
+        // Removals leave tombstones which must not break the probing
+        for (long i = 0; i < 10000; i += 2) {
+            assertEquals(i, map.remove(i << 21));
+        }
+        for (long i = 0; i < 10000; i++) {
+            assertEquals(i % 2 == 0 ? null : i, map.get(i << 21));
+        }
+        for (int round = 0; round < 10; round++) {
+            for (long i = 10000; i < 20000; i++) {
+                map.put(i << 21, i);
+            }
+            for (long i = 10000; i < 20000; i++) {
+                map.remove(i << 21);
+            }
+        }
+        assertEquals(5000, map.size());
+
+        Set<Long> values = new HashSet<>(map.values());
+        assertEquals(5000, values.size());
+        map.forEach((key, value) -> assertEquals(value << 21, key));
+    }
+
+    @Test
+    public void readWhilstWriting() throws InterruptedException {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        for (long i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (long i = 1000; i < 200000; i++) {
+                map.put(i, i);
+                map.remove(i - 500);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                while (writer.isAlive()) {
+                    for (long i = 500; i < 1000; i++) {
+                        Long value = map.get(i);
+                        if (value != null && value != i) {
+                            throw new AssertionError("Value " + value + " at key " + i);
+                        }
+                    }
+                    for (Long value : map.values()) {
+                        assertNotNull(value);
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(1000, map.size());
+    }
+}
@@ -117,8 +117,7 @@ public class EngineServerIntegrated implements EngineServer {
 
 
     protected void finishStage() {
-        ticker = new Ticker(this::serverTick, partial -> {
-        }, 20);
+        ticker = new Ticker(this::serverTick, 20);
     }
 
     @Override
@@ -34,6 +34,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import static engine.world.chunk.ChunkConstants.*;
@@ -71,11 +72,12 @@ public class WorldClient implements World, Runnable {
     }
 
     protected void tickEntityMotion() {
-        for (Entity entity : this.getEntities()) {
+        entityManager.forEachEntity(entity -> {
             Vector3d position = entity.getPosition();
             Vector3f motion = entity.getMotion();
             position.add(motion);
-        }
+            entityManager.updateEntityPosition(entity);
+        });
     }
 
     @Override
@@ -133,6 +135,11 @@ public class WorldClient implements World, Runnable {
 
     }
 
+    @Override
+    public void setEntityPosition(Entity entity, double x, double y, double z) {
+        entityManager.setEntityPosition(entity, x, y, z);
+    }
+
     @Override
     public long getGameTick() {
         return gameTick;
@@ -178,6 +185,11 @@ public class WorldClient implements World, Runnable {
         return entityManager.getEntities(predicate);
     }
 
+    @Override
+    public void forEachEntity(Consumer<? super Entity> visitor) {
+        entityManager.forEachEntity(visitor);
+    }
+
     @Override
     public <T extends Entity> List<T> getEntitiesWithType(Class<T> entityType) {
         return entityManager.getEntitiesWithType(entityType);
@@ -198,6 +210,16 @@ public class WorldClient implements World, Runnable {
         return entityManager.getEntitiesWithSphere(centerX, centerY, centerZ, radius);
     }
 
+    @Override
+    public void forEachEntityWithBoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Consumer<? super Entity> visitor) {
+        entityManager.forEachEntityWithBoundingBox(minX, minY, minZ, maxX, maxY, maxZ, visitor);
+    }
+
+    @Override
+    public void forEachEntityWithSphere(double centerX, double centerY, double centerZ, double radius, Consumer<? super Entity> visitor) {
+        entityManager.forEachEntityWithSphere(centerX, centerY, centerZ, radius, visitor);
+    }
+
     @Override
     public EntityHitResult raycastEntity(Vector3fc from, Vector3fc dir, float distance) {
         return entityManager.raycastEntity(from, dir, distance);
@@ -237,12 +259,13 @@ public class WorldClient implements World, Runnable {
 
     @Override
     public int getBlockId(int x, int y, int z) {
-        return Registries.getBlockRegistry().getId(getBlock(x, y, z));
+        Chunk chunk = chunkManager.getOrLoadChunk(x >> ChunkConstants.CHUNK_X_BITS, y >> ChunkConstants.CHUNK_Y_BITS, z >> ChunkConstants.CHUNK_Z_BITS);
+        return chunk != null ? chunk.getBlockId(x, y, z) : Registries.getBlockRegistry().getId(Registries.getBlockRegistry().air());
     }
 
     @Override
     public boolean isAirBlock(int x, int y, int z) {
-        return getBlock(x, y, z) == Registries.getBlockRegistry().air();
+        return getBlockId(x, y, z) == Registries.getBlockRegistry().getId(Registries.getBlockRegistry().air());
     }
 
     //TODO: check if this implementation shall modify or not
@@ -276,6 +299,12 @@ public class WorldClient implements World, Runnable {
         return oldBlock;
     }
 
+    @Override
+    public int setBlockId(int x, int y, int z, int blockId, @Nonnull BlockChangeCause cause) {
+        Chunk chunk = chunkManager.getOrLoadChunk(x >> ChunkConstants.CHUNK_X_BITS, y >> ChunkConstants.CHUNK_Y_BITS, z >> ChunkConstants.CHUNK_Z_BITS);
+        return chunk != null ? chunk.setBlockId(x, y, z, blockId, cause) : Registries.getBlockRegistry().getId(Registries.getBlockRegistry().air());
+    }
+
     protected void notifyNeighborChanged(BlockPos pos, Block block, BlockChangeCause cause) {
         for (Direction direction : Direction.values()) {
             BlockPos neighborPos = pos.offset(direction);
@@ -1,16 +1,15 @@
 package engine.client.world.chunk;
 
+import engine.Platform;
 import engine.client.world.WorldClient;
 import engine.event.world.chunk.ChunkLoadEvent;
 import engine.event.world.chunk.ChunkUnloadEvent;
 import engine.server.network.packet.s2c.PacketChunkData;
+import engine.util.ConcurrentLongObjectMap;
 import engine.world.chunk.*;
-import io.netty.util.collection.LongObjectHashMap;
-import io.netty.util.collection.LongObjectMap;
+import io.netty.buffer.ByteBufInputStream;
 import org.apache.commons.lang3.Validate;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Optional;
@@ -20,12 +19,15 @@ import static engine.world.chunk.ChunkConstants.getChunkIndex;
 public class WorldClientChunkManager implements ChunkManager {
 
     private final WorldClient world;
-    private final LongObjectMap<Chunk> chunkMap;
+    /**
+     * Written by the network threads, read by the game, render and chunk baker threads.
+     */
+    private final ConcurrentLongObjectMap<Chunk> chunkMap;
     private final Chunk blank;
 
     public WorldClientChunkManager(WorldClient world) {
         this.world = world;
-        this.chunkMap = new LongObjectHashMap<>();
+        this.chunkMap = new ConcurrentLongObjectMap<>();
         blank = new AirChunk(world, 0, 0, 0);
     }
 
@@ -43,21 +45,23 @@ public class WorldClientChunkManager implements ChunkManager {
 
     public Chunk loadChunk(int x, int y, int z) {
         long chunkIndex = ChunkConstants.getChunkIndex(x, y, z);
-        if (!chunkMap.containsKey(chunkIndex)) {
-            return blank;
-        }
-        return chunkMap.get(chunkIndex);
+        return chunkMap.getOrDefault(chunkIndex, blank);
     }
 
     public Chunk loadChunkFromPacket(PacketChunkData packet) {
         long index = ChunkConstants.getChunkIndex(packet.getChunkX(), packet.getChunkY(), packet.getChunkZ());
         var chunk = new CubicChunk(world, packet.getChunkX(), packet.getChunkY(), packet.getChunkZ());
-        try (var stream = new ByteArrayInputStream(packet.getRawData())) {
-            chunk.read(new DataInputStream(stream));
+        try {
+            chunk.read(new ByteBufInputStream(packet.getData().duplicate()));
         } catch (IOException e) {
-
+            Platform.getLogger().warn(String.format("Failed to read chunk data at %d, %d, %d", packet.getChunkX(), packet.getChunkY(), packet.getChunkZ()), e);
+            return blank;
+        }
+        Chunk old = chunkMap.put(index, chunk);
+        if (old != null) {
+            // Resent as a whole, e.g. after too many block changes in a tick, so the old chunk is dropped by the listeners
+            unloadChunk(index, old);
         }
-        chunkMap.put(index, chunk);
         world.getGame().getEventBus().post(new ChunkLoadEvent(chunk));
         return chunk;
     }
@@ -65,10 +69,9 @@ public class WorldClientChunkManager implements ChunkManager {
     @Override
     public void unloadChunk(Chunk chunk) {
         long index = ChunkConstants.getChunkIndex(chunk);
-        if (!chunkMap.containsKey(index))
+        if (chunkMap.remove(index) == null)
             return;
         unloadChunk(index, chunk);
-        chunkMap.remove(index);
     }
 
     private synchronized void unloadChunk(long index, Chunk chunk) {
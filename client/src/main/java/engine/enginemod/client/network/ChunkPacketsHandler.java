@@ -4,6 +4,7 @@ import engine.Platform;
 import engine.client.world.WorldClient;
 import engine.event.Listener;
 import engine.server.event.PacketReceivedEvent;
+import engine.server.network.packet.c2s.PacketChunkAck;
 import engine.server.network.packet.s2c.PacketChunkData;
 import engine.server.network.packet.s2c.PacketUnloadChunk;
 
@@ -15,6 +16,8 @@ public class ChunkPacketsHandler {
             Platform.getEngineClient().getCurrentClientGame().getWorld(event.getPacket().getWorldName())
                     .ifPresent(world -> ((WorldClient) world).getChunkManager().loadChunkFromPacket(event.getPacket()));
         }
+        // Acknowledge even if the chunk is dropped, so that the server keeps sending
+        event.getHandler().sendPacket(new PacketChunkAck(1));
     }
 
     @Listener
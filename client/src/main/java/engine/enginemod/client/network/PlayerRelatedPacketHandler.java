@@ -40,7 +40,7 @@ public class PlayerRelatedPacketHandler {
                         pos.z = event.getPacket().getPosZ();
                     }
 
-                    player.getControlledEntity().getPosition().set(pos);
+                    player.getControlledEntity().getWorld().setEntityPosition(player.getControlledEntity(), pos.x, pos.y, pos.z);
                     player.getControlledEntity().getMotion().set(motion);
                     ((ClientPlayerImpl) player).lastX = pos.x;
                     ((ClientPlayerImpl) player).lastY = pos.y;
@@ -6,6 +6,7 @@ import engine.client.input.controller.EntityCameraController;
 import engine.enginemod.client.gui.game.GuiServerConnectingStatus;
 import engine.entity.CameraEntity;
 import engine.event.Listener;
+import engine.graphics.voxel.chunk.ChunkBaker;
 import engine.game.MultiplayerGameData;
 import engine.registry.Registries;
 import engine.registry.Registry;
@@ -45,6 +46,9 @@ public class PreGamePacketHandler {
             if (Objects.equals(registry.getRegistryName(), event.getPacket().getRegistryName())) {
                 if (registry instanceof SynchronizableRegistry) {
                     ((SynchronizableRegistry<?>) registry).sync(event.getPacket().getIdMap());
+                    if (registry == Registries.getBlockRegistry()) {
+                        ChunkBaker.invalidateBlockTables();
+                    }
                 }
             }
         }
@@ -4,7 +4,9 @@ import engine.Platform;
 import engine.event.Listener;
 import engine.event.block.cause.BlockChangeCause;
 import engine.server.event.PacketReceivedEvent;
+import engine.registry.Registries;
 import engine.server.network.packet.s2c.PacketBlockUpdate;
+import engine.server.network.packet.s2c.PacketMultiBlockUpdate;
 
 public class WorldPacketsHandler {
     @Listener
@@ -12,4 +14,15 @@ public class WorldPacketsHandler {
         Platform.getEngine().getCurrentClientGame().getWorld(event.getPacket().getWorldName()).ifPresent(world ->
                 world.setBlock(event.getPacket().getPos(), event.getPacket().getBlock(), new BlockChangeCause.WorldSyncCause(), false));
     }
+
+    @Listener
+    public static void onMultiBlockUpdate(PacketReceivedEvent<PacketMultiBlockUpdate> event) {
+        var packet = event.getPacket();
+        Platform.getEngine().getCurrentClientGame().getWorld(packet.getWorldName()).ifPresent(world -> {
+            var cause = new BlockChangeCause.WorldSyncCause();
+            for (int i = 0; i < packet.getCount(); i++) {
+                world.setBlock(packet.getPos(i), Registries.getBlockRegistry().getValue(packet.getBlockId(i)), cause, false);
+            }
+        });
+    }
 }
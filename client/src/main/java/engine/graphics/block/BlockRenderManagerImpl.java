@@ -5,6 +5,7 @@ import engine.block.Block;
 import engine.client.asset.Asset;
 import engine.client.asset.AssetTypes;
 import engine.graphics.model.BakedModel;
+import engine.graphics.texture.TextureAtlasRegion;
 import engine.graphics.vertex.VertexDataBuf;
 import engine.math.BlockPos;
 import engine.registry.Registries;
@@ -39,8 +40,13 @@ public final class BlockRenderManagerImpl implements BlockRenderManager {
 
     @Override
     public boolean canRenderNeighborBlockFace(BlockGetter world, BlockPos pos, Block block, Direction direction) {
+        return !isFullFace(block, direction);
+    }
+
+    @Override
+    public boolean isFullFace(Block block, Direction direction) {
         Asset<BakedModel> model = blockModelMap.get(block);
-        return model == null || !model.get().isFullFace(direction);
+        return model != null && model.get().isFullFace(direction);
     }
 
     @Override
@@ -63,6 +69,17 @@ public final class BlockRenderManagerImpl implements BlockRenderManager {
         model.get().putVertexes(buffer, coveredFace);
     }
 
+    @Override
+    public void generateMesh(Block block, int x, int y, int z, int coveredFace, VertexDataBuf buffer) {
+        Asset<BakedModel> model = blockModelMap.get(block);
+        if (model == null) {
+            return;
+        }
+
+        buffer.setTranslation(x, y, z);
+        model.get().putVertexes(buffer, coveredFace);
+    }
+
     @Override
     public void generateMesh(Block block, VertexDataBuf buffer) {
         Asset<BakedModel> model = blockModelMap.get(block);
@@ -73,6 +90,12 @@ public final class BlockRenderManagerImpl implements BlockRenderManager {
         model.get().putVertexes(buffer, 0);
     }
 
+    @Override
+    public TextureAtlasRegion getCubeFaceTexture(Block block, Direction direction) {
+        Asset<BakedModel> model = blockModelMap.get(block);
+        return model == null ? null : model.get().getCubeFaceTexture(direction);
+    }
+
     public void dispose() {
         blockModelMap.values().forEach(Asset::dispose);
     }
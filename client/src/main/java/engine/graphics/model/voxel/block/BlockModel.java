@@ -35,7 +35,45 @@ public final class BlockModel implements Model {
         Map<Integer, List<float[]>> vertexes = new HashMap<>();
         bakeModel(this, vertexes, textureGetter);
         fillTransformationArray(transforms);
-        return new BakedModel(Map.copyOf(vertexes), fullFaces, transforms);
+        return new BakedModel(Map.copyOf(vertexes), fullFaces, transforms, bakeCubeFaceTextures(textureGetter));
+    }
+
+    /**
+     * @return the textures by direction if the model is a single unit cube with each face covered by a whole texture
+     */
+    private TextureAtlasRegion[] bakeCubeFaceTextures(Function<AssetURL, TextureAtlasRegion> textureGetter) {
+        Cube cube = null;
+        for (var model = this; model != null; model = model.resolvedParent) {
+            for (var modelCube : model.cubes) {
+                if (cube != null) {
+                    return null;
+                }
+                cube = modelCube;
+            }
+        }
+        if (cube == null || !isUnitCube(cube)) {
+            return null;
+        }
+
+        var textures = new TextureAtlasRegion[6];
+        for (Direction direction : Direction.values()) {
+            var face = cube.faces[direction.index];
+            if (face == null || face.cullFaces != ModelUtils.toDirectionInt(direction) || !isWholeTexture(face.texture)) {
+                return null;
+            }
+            textures[direction.index] = textureGetter.apply(BlockModelLoader.resolveTexture(face.texture.name, this.textures));
+        }
+        return textures;
+    }
+
+    private static boolean isUnitCube(Cube cube) {
+        return cube.from.x() == 0 && cube.from.y() == 0 && cube.from.z() == 0 &&
+                cube.to.x() == 1 && cube.to.y() == 1 && cube.to.z() == 1;
+    }
+
+    private static boolean isWholeTexture(Texture texture) {
+        var uv = texture.uv;
+        return uv.x() == 0 && uv.y() == 0 && uv.z() == 1 && uv.w() == 1;
     }
 
     @Override
@@ -108,11 +146,13 @@ public final class BlockModel implements Model {
         private final Map<Integer, List<float[]>> vertexes;
         private final boolean[] fullFaces;
         private final Transform[] transforms;
+        private final TextureAtlasRegion[] cubeFaceTextures;
 
-        BakedModel(Map<Integer, List<float[]>> vertexes, boolean[] fullFaces, Transform[] transforms) {
+        BakedModel(Map<Integer, List<float[]>> vertexes, boolean[] fullFaces, Transform[] transforms, TextureAtlasRegion[] cubeFaceTextures) {
             this.vertexes = vertexes;
             this.fullFaces = fullFaces;
             this.transforms = transforms;
+            this.cubeFaceTextures = cubeFaceTextures;
         }
 
         @Override
@@ -133,6 +173,11 @@ public final class BlockModel implements Model {
             return fullFaces[direction.index];
         }
 
+        @Override
+        public TextureAtlasRegion getCubeFaceTexture(Direction direction) {
+            return cubeFaceTextures == null ? null : cubeFaceTextures[direction.index];
+        }
+
         @Override
         public Transform getTransformation(DisplayType type) {
             return transforms[type.ordinal()];
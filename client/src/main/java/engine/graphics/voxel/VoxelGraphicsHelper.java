@@ -18,6 +18,7 @@ import engine.graphics.model.BakedModel;
 import engine.graphics.model.voxel.ModelManager;
 import engine.graphics.texture.TextureAtlas;
 import engine.graphics.texture.TextureAtlasImpl;
+import engine.graphics.voxel.chunk.ChunkBaker;
 import engine.graphics.voxel.chunk.ChunkRenderer;
 import engine.world.World;
 
@@ -51,6 +52,8 @@ public final class VoxelGraphicsHelper {
                 .parentLocation("model")
                 .extensionName(".json")
                 .build());
+        assetManager.getReloadManager().addHandler(
+                AssetReloadHandler.builder().name("BlockRenderTables").after("BakeVoxelModel").runnable(ChunkBaker::invalidateBlockTables).build());
 
         manager.getEngine().getEventBus().register(VoxelGraphicsHelper.class);
     }
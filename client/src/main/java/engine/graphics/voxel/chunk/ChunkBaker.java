@@ -1,50 +1,139 @@
 package engine.graphics.voxel.chunk;
 
-import engine.block.Block;
+import engine.Platform;
 import engine.graphics.GraphicsEngine;
 import engine.graphics.block.BlockRenderManager;
+import engine.graphics.texture.TextureAtlasRegion;
 import engine.graphics.vertex.VertexDataBuf;
 import engine.graphics.vertex.VertexDataBufPool;
 import engine.graphics.vertex.VertexFormat;
-import engine.math.BlockPos;
-import engine.world.BlockGetter;
-import engine.world.World;
+import engine.graphics.viewport.Viewport;
 import engine.world.chunk.Chunk;
-import engine.world.util.BlockPosIterator;
-import engine.world.util.ChunkCache;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.Vector3ic;
 
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static engine.world.chunk.ChunkConstants.*;
 
 public final class ChunkBaker {
 
-    private static ThreadPoolExecutor executor;
+    /**
+     * The pending tasks are sorted again when the camera has moved further than this since the last sort.
+     */
+    private static final float RESORT_DISTANCE = 8;
+
+    private static final Object lock = new Object();
+    private static PriorityQueue<Task> queue = new PriorityQueue<>();
+    private static final Reference2ObjectMap<DrawableChunk, Task> pendingTasks = new Reference2ObjectOpenHashMap<>();
+    private static final Vector3f sortedPosition = new Vector3f();
+
+    private static Thread[] workers;
+    private static Viewport viewport;
     private static VertexDataBufPool dataBufPool;
+    private static final ThreadLocal<ChunkSnapshot> SNAPSHOT = ThreadLocal.withInitial(ChunkSnapshot::new);
+    private static final ThreadLocal<GreedyMesher> GREEDY_MESHER = ThreadLocal.withInitial(GreedyMesher::new);
 
-    public static void start() {
+    public static void start(Viewport viewport) {
+        ChunkBaker.viewport = viewport;
         int threadCount = Runtime.getRuntime().availableProcessors();
-        executor = new ThreadPoolExecutor(threadCount, threadCount,
-                0L, TimeUnit.MILLISECONDS,
-                new PriorityBlockingQueue<>(), new ThreadFactory() {
-            private final AtomicInteger poolNumber = new AtomicInteger(0);
-
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, "Chunk Baker " + poolNumber.getAndIncrement());
-            }
-        });
         dataBufPool = VertexDataBufPool.create(0x200000, threadCount * 8);
+        workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Thread(ChunkBaker::work, "Chunk Baker " + i);
+            workers[i].start();
+        }
     }
 
     public static void stop() {
-        executor.shutdownNow();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        synchronized (lock) {
+            queue.clear();
+            pendingTasks.clear();
+        }
     }
 
-    public static void execute(Task task) {
-        executor.execute(task);
+    /**
+     * Bake the chunk, nearest to the camera first. Does nothing if the chunk is already waiting to be baked.
+     */
+    public static void execute(DrawableChunk drawableChunk, Chunk chunk) {
+        synchronized (lock) {
+            Task task = pendingTasks.get(drawableChunk);
+            if (task != null) {
+                if (task.chunk == chunk) return;
+                // The drawable chunk has been recycled
+                queue.remove(task);
+            }
+            task = new Task(drawableChunk, chunk);
+            task.updateSqDistance(viewport.getCamera().getPosition());
+            pendingTasks.put(drawableChunk, task);
+            queue.add(task);
+            lock.notify();
+        }
+    }
+
+    /**
+     * Drop the pending task of the chunk, e.g. when it is removed.
+     */
+    public static void cancel(DrawableChunk drawableChunk) {
+        synchronized (lock) {
+            Task task = pendingTasks.remove(drawableChunk);
+            if (task != null) {
+                queue.remove(task);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the block tables used by the bakes, e.g. after the block ids are synchronized or the block models are
+     * reloaded.
+     */
+    public static void invalidateBlockTables() {
+        ChunkSnapshot.invalidateTables();
+    }
+
+    private static void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Task task = take();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Platform.getLogger().warn("Cannot bake chunk", e);
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private static Task take() throws InterruptedException {
+        synchronized (lock) {
+            while (queue.isEmpty()) {
+                lock.wait();
+            }
+            resortIfCameraMoved();
+            Task task = queue.poll();
+            pendingTasks.remove(task.drawableChunk);
+            return task;
+        }
+    }
+
+    private static void resortIfCameraMoved() {
+        Vector3fc position = viewport.getCamera().getPosition();
+        if (position.distanceSquared(sortedPosition) < RESORT_DISTANCE * RESORT_DISTANCE) return;
+        sortedPosition.set(position);
+        List<Task> tasks = new ArrayList<>(queue);
+        for (Task task : tasks) {
+            task.updateSqDistance(sortedPosition);
+        }
+        queue = new PriorityQueue<>(tasks);
     }
 
     private ChunkBaker() {
@@ -53,48 +142,89 @@ public final class ChunkBaker {
     public static final class Task implements Runnable, Comparable<Task> {
 
         private final DrawableChunk drawableChunk;
-        private final double sqDistance;
+        private final Chunk chunk;
+        private double sqDistance;
 
-        public Task(DrawableChunk drawableChunk, double sqDistance) {
+        private Task(DrawableChunk drawableChunk, Chunk chunk) {
             this.drawableChunk = drawableChunk;
-            this.sqDistance = sqDistance;
+            this.chunk = chunk;
+        }
+
+        private void updateSqDistance(Vector3fc position) {
+            Vector3ic center = chunk.getCenter();
+            sqDistance = position.distanceSquared(center.x(), center.y(), center.z());
         }
 
         @Override
         public void run() {
             try {
+                // The chunk has been removed since
+                if (drawableChunk.getChunk() != chunk) return;
                 drawableChunk.clearDirty();
-                Chunk chunk = drawableChunk.getChunk();
-                if (chunk.isAirChunk()) return;
+                if (chunk.isAirChunk()) {
+                    drawableChunk.onBakeDone();
+                    return;
+                }
 
                 BlockRenderManager blockRenderManager = BlockRenderManager.instance();
                 VertexDataBuf buf = dataBufPool.get();
                 buf.begin(VertexFormat.POSITION_COLOR_ALPHA_TEX_COORD_NORMAL);
-                BlockGetter blockCache = createChunkCache(chunk.getWorld(), chunk);
-                BlockPosIterator blockPosIterator = BlockPosIterator.createFromChunk(chunk);
-                while (blockPosIterator.hasNext()) {
-                    BlockPos pos = blockPosIterator.next();
-                    Block block = blockCache.getBlock(pos);
-                    blockRenderManager.generateMesh(block, blockCache, pos, buf);
+                ChunkSnapshot snapshot = SNAPSHOT.get();
+                snapshot.take(chunk, blockRenderManager);
+                GreedyMesher mesher = null;
+                if (Platform.getEngineClient().getSettings().getDisplaySettings().isGreedyMeshing()) {
+                    mesher = GREEDY_MESHER.get();
+                    mesher.clear();
+                }
+                int minX = chunk.getMin().x(), minY = chunk.getMin().y(), minZ = chunk.getMin().z();
+                int airId = snapshot.getAirId();
+                for (int x = 0; x < CHUNK_X_SIZE; x++) {
+                    for (int y = 0; y < CHUNK_Y_SIZE; y++) {
+                        for (int z = 0; z < CHUNK_Z_SIZE; z++) {
+                            int index = ChunkSnapshot.index(x + 1, y + 1, z + 1);
+                            int id = snapshot.getBlockId(index);
+                            if (id == airId) {
+                                continue;
+                            }
+                            int coveredFaces = snapshot.getCoveredFaces(index);
+                            TextureAtlasRegion[] textures = mesher != null ? snapshot.getCubeFaceTextures(id) : null;
+                            if (textures != null) {
+                                mesher.add(x, y, z, textures, coveredFaces);
+                            } else {
+                                blockRenderManager.generateMesh(snapshot.getBlockById(id), minX + x, minY + y, minZ + z, coveredFaces, buf);
+                            }
+                        }
+                    }
+                }
+                if (mesher != null) {
+                    mesher.generate(buf, minX, minY, minZ);
                 }
                 buf.finish();
 
-                GraphicsEngine.getGraphicsBackend().submitTask(() -> {
-                    drawableChunk.finishBake(buf);
+                // The drawable chunk has been recycled whilst baking
+                if (drawableChunk.getChunk() != chunk) {
                     dataBufPool.free(buf);
-                    if (drawableChunk.isDisposed()) return;
-                    if (drawableChunk.isDirty()) drawableChunk.executeBake();
+                    return;
+                }
+                // Keyed by the chunk rather than the recycled drawable chunk, so that a late upload of the previous
+                // chunk never replaces the upload of the current one
+                GraphicsEngine.getGraphicsBackend().submitUpload(chunk, sqDistance, buf.getByteBuffer().limit(), () -> {
+                    if (drawableChunk.getChunk() == chunk) {
+                        drawableChunk.finishBake(buf);
+                    }
+                    dataBufPool.free(buf);
+                }, () -> {
+                    dataBufPool.free(buf);
+                    // Replaced by a later bake of the chunk, or dropped by the backend
+                    if (drawableChunk.getChunk() == chunk) {
+                        drawableChunk.onBakeDone();
+                    }
                 });
-            } catch (InterruptedException ignored) {
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
 
-        private ChunkCache createChunkCache(World world, Chunk chunk) {
-            return ChunkCache.create(world,
-                    chunk.getX() - 1, chunk.getY() - 1, chunk.getZ() - 1,
-                    chunk.getX() + 1, chunk.getY() + 1, chunk.getZ() + 1);
-        }
-
         @Override
         public int compareTo(Task o) {
             return Double.compare(sqDistance, o.sqDistance);
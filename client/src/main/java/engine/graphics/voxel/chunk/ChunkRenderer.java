@@ -37,7 +37,7 @@ public final class ChunkRenderer {
         this.scene = manager.getScene();
         this.viewport = manager.getViewport();
         this.world = world;
-        ChunkBaker.start();
+        ChunkBaker.start(viewport);
         world.getLoadedChunks().forEach(this::addChunk);
         Platform.getEngine().getEventBus().register(this);
     }
@@ -88,6 +88,7 @@ public final class ChunkRenderer {
         long chunkIndex = getChunkIndex(chunk);
         DrawableChunk removed = chunks.remove(chunkIndex);
         if (removed == null) return;
+        ChunkBaker.cancel(removed);
         removed.reset();
         scene.removeNode(removed);
         recycleChunks.add(removed);
@@ -145,6 +146,7 @@ public final class ChunkRenderer {
     }
 
     private void markChunkDirty(long index) {
-        chunks.get(index).markDirty();
+        DrawableChunk chunk = chunks.get(index);
+        if (chunk != null) chunk.markDirty();
     }
 }
@@ -0,0 +1,235 @@
+package engine.graphics.voxel.chunk;
+
+import engine.block.Block;
+import engine.graphics.block.BlockRenderManager;
+import engine.graphics.texture.TextureAtlasRegion;
+import engine.registry.Registries;
+import engine.registry.game.BlockRegistry;
+import engine.util.Direction;
+import engine.world.BlockGetter;
+import engine.world.World;
+import engine.world.chunk.Chunk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static engine.world.chunk.ChunkConstants.*;
+
+/**
+ * A copy of the block ids of a chunk and of a one block border around it, taken when a bake starts, so that the bake
+ * reads a flat array instead of the chunks and does not see the blocks changed by the main thread whilst baking.
+ * <p>
+ * The face culling is done with tables by block id, which are shared by all the snapshots and only rebuilt after
+ * {@link #invalidateTables()}, e.g. when the block ids are synchronized or the block models are reloaded.
+ */
+@NotThreadSafe
+final class ChunkSnapshot implements BlockGetter {
+
+    static final int SIZE_X = CHUNK_X_SIZE + 2;
+    static final int SIZE_Y = CHUNK_Y_SIZE + 2;
+    static final int SIZE_Z = CHUNK_Z_SIZE + 2;
+
+    private static final int STRIDE_X = SIZE_Y * SIZE_Z;
+    private static final int STRIDE_Y = SIZE_Z;
+
+    /**
+     * The index offset of the neighbour in each direction.
+     */
+    private static final int[] NEIGHBOR_OFFSETS = new int[6];
+
+    static {
+        for (Direction direction : Direction.values()) {
+            NEIGHBOR_OFFSETS[direction.index] = direction.offsetX * STRIDE_X + direction.offsetY * STRIDE_Y + direction.offsetZ;
+        }
+    }
+
+    private static final AtomicInteger tablesVersion = new AtomicInteger();
+    private static volatile Tables sharedTables;
+
+    private final short[] ids = new short[SIZE_X * SIZE_Y * SIZE_Z];
+    private World world;
+    private int originX, originY, originZ;
+
+    private Tables tables;
+
+    static int index(int x, int y, int z) {
+        return x * STRIDE_X + y * STRIDE_Y + z;
+    }
+
+    /**
+     * Rebuild the tables on the next {@link #take(Chunk, BlockRenderManager)}.
+     */
+    static void invalidateTables() {
+        tablesVersion.incrementAndGet();
+    }
+
+    void take(Chunk chunk, BlockRenderManager blockRenderManager) {
+        tables = getTables(blockRenderManager);
+
+        world = chunk.getWorld();
+        originX = chunk.getMin().x() - 1;
+        originY = chunk.getMin().y() - 1;
+        originZ = chunk.getMin().z() - 1;
+        for (int chunkX = chunk.getX() - 1; chunkX <= chunk.getX() + 1; chunkX++) {
+            for (int chunkY = chunk.getY() - 1; chunkY <= chunk.getY() + 1; chunkY++) {
+                for (int chunkZ = chunk.getZ() - 1; chunkZ <= chunk.getZ() + 1; chunkZ++) {
+                    copy(chunkX == chunk.getX() && chunkY == chunk.getY() && chunkZ == chunk.getZ() ?
+                            chunk : world.getChunk(chunkX, chunkY, chunkZ), chunkX, chunkY, chunkZ);
+                }
+            }
+        }
+    }
+
+    private void copy(Chunk chunk, int chunkX, int chunkY, int chunkZ) {
+        int fromX = Math.max(0, (chunkX << CHUNK_X_BITS) - originX), toX = Math.min(SIZE_X, ((chunkX + 1) << CHUNK_X_BITS) - originX);
+        int fromY = Math.max(0, (chunkY << CHUNK_Y_BITS) - originY), toY = Math.min(SIZE_Y, ((chunkY + 1) << CHUNK_Y_BITS) - originY);
+        int fromZ = Math.max(0, (chunkZ << CHUNK_Z_BITS) - originZ), toZ = Math.min(SIZE_Z, ((chunkZ + 1) << CHUNK_Z_BITS) - originZ);
+        for (int x = fromX; x < toX; x++) {
+            for (int y = fromY; y < toY; y++) {
+                int index = index(x, y, fromZ);
+                if (chunk == null || chunk.isAirChunk()) {
+                    Arrays.fill(ids, index, index + toZ - fromZ, (short) tables.airId);
+                    continue;
+                }
+                for (int z = fromZ; z < toZ; z++, index++) {
+                    ids[index] = (short) chunk.getBlockId(originX + x, originY + y, originZ + z);
+                }
+            }
+        }
+    }
+
+    private static Tables getTables(BlockRenderManager blockRenderManager) {
+        Tables tables = sharedTables;
+        int version = tablesVersion.get();
+        if (tables != null && tables.version == version && tables.blockRenderManager == blockRenderManager) {
+            return tables;
+        }
+        synchronized (ChunkSnapshot.class) {
+            tables = sharedTables;
+            if (tables == null || tables.version != version || tables.blockRenderManager != blockRenderManager) {
+                // Built with the version read beforehand, so that an invalidation meanwhile rebuilds them again
+                tables = new Tables(blockRenderManager, version);
+                sharedTables = tables;
+            }
+            return tables;
+        }
+    }
+
+    int getBlockId(int index) {
+        return ids[index];
+    }
+
+    int getAirId() {
+        return tables.airId;
+    }
+
+    @Nonnull
+    Block getBlockById(int id) {
+        Block[] blocks = tables.blocks;
+        Block block = id >= 0 && id < blocks.length ? blocks[id] : null;
+        return block == null ? tables.air : block;
+    }
+
+    /**
+     * @return the faces of the block at the index hidden by the full faces of its neighbours, as
+     * {@link engine.graphics.model.ModelUtils#toDirectionInt(Direction)} masks
+     */
+    int getCoveredFaces(int index) {
+        byte[] fullFaces = tables.fullFaces;
+        int coveredFaces = 0;
+        for (Direction direction : Direction.values()) {
+            int neighborId = ids[index + NEIGHBOR_OFFSETS[direction.index]];
+            if (neighborId >= 0 && neighborId < fullFaces.length && (fullFaces[neighborId] & (1 << direction.opposite)) != 0) {
+                coveredFaces |= 1 << direction.index;
+            }
+        }
+        return coveredFaces;
+    }
+
+    /**
+     * @return the textures of the faces if the block is a full cube which can be greedily meshed, otherwise null
+     */
+    TextureAtlasRegion[] getCubeFaceTextures(int id) {
+        TextureAtlasRegion[][] cubeFaceTextures = tables.cubeFaceTextures;
+        return id >= 0 && id < cubeFaceTextures.length ? cubeFaceTextures[id] : null;
+    }
+
+    @Nonnull
+    @Override
+    public Block getBlock(int x, int y, int z) {
+        return getBlockById(getBlockId(x, y, z));
+    }
+
+    @Override
+    public int getBlockId(int x, int y, int z) {
+        x -= originX;
+        y -= originY;
+        z -= originZ;
+        if (x < 0 || x >= SIZE_X || y < 0 || y >= SIZE_Y || z < 0 || z >= SIZE_Z) {
+            return world.getBlockId(x + originX, y + originY, z + originZ);
+        }
+        return ids[index(x, y, z)];
+    }
+
+    @Override
+    public boolean isAirBlock(int x, int y, int z) {
+        return getBlockId(x, y, z) == tables.airId;
+    }
+
+    /**
+     * The tables by block id, never modified once built.
+     */
+    private static final class Tables {
+        private final BlockRenderManager blockRenderManager;
+        private final int version;
+
+        private final Block air;
+        private final int airId;
+        private final Block[] blocks;
+        /**
+         * The full faces of each block, as {@link engine.graphics.model.ModelUtils#toDirectionInt(Direction)} masks.
+         */
+        private final byte[] fullFaces;
+        private final TextureAtlasRegion[][] cubeFaceTextures;
+
+        private Tables(BlockRenderManager blockRenderManager, int version) {
+            this.blockRenderManager = blockRenderManager;
+            this.version = version;
+            BlockRegistry registry = Registries.getBlockRegistry();
+            air = registry.air();
+            airId = registry.getId(air);
+            int maxId = 0;
+            for (Block block : registry.getValues()) {
+                maxId = Math.max(maxId, registry.getId(block));
+            }
+            if (maxId > Short.MAX_VALUE) {
+                throw new IllegalStateException("Block id " + maxId + " does not fit in a snapshot");
+            }
+            blocks = new Block[maxId + 1];
+            fullFaces = new byte[maxId + 1];
+            cubeFaceTextures = new TextureAtlasRegion[maxId + 1][];
+            for (int id = 0; id <= maxId; id++) {
+                Block block = registry.getValue(id);
+                blocks[id] = block;
+                if (block == null) {
+                    continue;
+                }
+                TextureAtlasRegion[] textures = new TextureAtlasRegion[6];
+                for (Direction direction : Direction.values()) {
+                    if (blockRenderManager.isFullFace(block, direction)) {
+                        fullFaces[id] |= 1 << direction.index;
+                    }
+                    if (textures != null) {
+                        textures[direction.index] = blockRenderManager.getCubeFaceTexture(block, direction);
+                        if (textures[direction.index] == null) {
+                            textures = null;
+                        }
+                    }
+                }
+                cubeFaceTextures[id] = textures;
+            }
+        }
+    }
+}
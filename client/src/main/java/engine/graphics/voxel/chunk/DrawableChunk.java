@@ -7,18 +7,21 @@ import engine.graphics.vertex.VertexDataBuf;
 import engine.graphics.voxel.VoxelGraphicsHelper;
 import engine.world.chunk.Chunk;
 import org.joml.AABBf;
-import org.joml.Vector3fc;
 import org.joml.Vector3ic;
 
 public final class DrawableChunk extends Geometry {
 
     private final ChunkRenderer renderer;
 
-    private Chunk chunk;
+    private volatile Chunk chunk;
     private SingleBufMesh mesh;
 
     private volatile boolean dirty;
-    private boolean drawing;
+    /**
+     * Whether a bake of the chunk is pending, running or waiting for upload. Dirtying the chunk meanwhile bakes it again
+     * once done.
+     */
+    private volatile boolean drawing;
 
     public DrawableChunk(ChunkRenderer renderer) {
         this.renderer = renderer;
@@ -39,6 +42,8 @@ public final class DrawableChunk extends Geometry {
 
     public void reset() {
         this.chunk = null;
+        dirty = false;
+        drawing = false;
     }
 
     public boolean isDirty() {
@@ -55,15 +60,10 @@ public final class DrawableChunk extends Geometry {
     }
 
     public void executeBake() {
+        Chunk chunk = this.chunk;
         if (chunk == null) return; // stop baking if there is nothing to bake
         drawing = true;
-        ChunkBaker.execute(new ChunkBaker.Task(this, distanceSqChunkToCamera()));
-    }
-
-    private double distanceSqChunkToCamera() {
-        Vector3fc position = renderer.getViewport().getCamera().getPosition();
-        Vector3ic center = chunk.getCenter();
-        return position.distanceSquared(center.x(), center.y(), center.z());
+        ChunkBaker.execute(this, chunk);
     }
 
     public void finishBake(VertexDataBuf buf) {
@@ -72,7 +72,13 @@ public final class DrawableChunk extends Geometry {
             setVisible(true);
         }
         mesh.uploadData(buf);
+        onBakeDone();
+    }
+
+    void onBakeDone() {
         drawing = false;
+        if (isDisposed()) return;
+        if (dirty) executeBake();
     }
 
     public boolean isDisposed() {
@@ -0,0 +1,181 @@
+package engine.graphics.voxel.chunk;
+
+import engine.graphics.texture.TextureAtlasRegion;
+import engine.graphics.vertex.VertexDataBuf;
+import engine.util.Direction;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+import static engine.world.chunk.ChunkConstants.*;
+
+/**
+ * Merges the visible faces of the full cube blocks of a chunk into maximal rectangles of the same texture, one layer at
+ * a time, so that a flat plane of blocks becomes a few quads instead of one quad per block.
+ * <p>
+ * A texture in the atlas cannot be repeated by the sampler, so the merged quads are tiled by the shader. Their color
+ * holds the atlas region of the texture (min u, min v, width, -height), the negative alpha telling them from the other
+ * vertices, and their texture coordinates count the tiles.
+ */
+@NotThreadSafe
+final class GreedyMesher {
+
+    private static final int[] SIZES = {CHUNK_X_SIZE, CHUNK_Y_SIZE, CHUNK_Z_SIZE};
+    private static final int MAX_SIZE = Math.max(CHUNK_X_SIZE, Math.max(CHUNK_Y_SIZE, CHUNK_Z_SIZE));
+
+    /**
+     * The texture of each visible face of the full cube blocks, by direction then local index.
+     */
+    private final TextureAtlasRegion[][] faces = new TextureAtlasRegion[6][BLOCK_COUNT];
+    /**
+     * The faces of the layer being merged.
+     */
+    private final TextureAtlasRegion[] mask = new TextureAtlasRegion[MAX_SIZE * MAX_SIZE];
+
+    void clear() {
+        for (TextureAtlasRegion[] directionFaces : faces) {
+            Arrays.fill(directionFaces, null);
+        }
+    }
+
+    /**
+     * Add the faces of a full cube block.
+     *
+     * @param x            the x of the block in the chunk
+     * @param textures     the textures of the faces by direction
+     * @param coveredFaces the faces hidden by the neighbours, which are not added
+     */
+    void add(int x, int y, int z, TextureAtlasRegion[] textures, int coveredFaces) {
+        int index = index(x, y, z);
+        for (int i = 0; i < 6; i++) {
+            if ((coveredFaces & (1 << i)) == 0) {
+                faces[i][index] = textures[i];
+            }
+        }
+    }
+
+    /**
+     * Put the merged faces.
+     *
+     * @param originX the x of the min block of the chunk
+     */
+    void generate(VertexDataBuf buffer, int originX, int originY, int originZ) {
+        buffer.setTranslation(originX, originY, originZ);
+        int[] position = new int[3];
+        for (Direction direction : Direction.values()) {
+            int axis = getAxis(direction);
+            int axisU = axis == 0 ? 2 : 0;
+            int axisV = axis == 1 ? 2 : 1;
+            int sizeU = SIZES[axisU], sizeV = SIZES[axisV];
+            TextureAtlasRegion[] directionFaces = faces[direction.index];
+            for (int layer = 0; layer < SIZES[axis]; layer++) {
+                position[axis] = layer;
+                for (int v = 0; v < sizeV; v++) {
+                    position[axisV] = v;
+                    for (int u = 0; u < sizeU; u++) {
+                        position[axisU] = u;
+                        mask[v * sizeU + u] = directionFaces[index(position[0], position[1], position[2])];
+                    }
+                }
+                mergeLayer(buffer, direction, axis, axisU, axisV, layer, sizeU, sizeV);
+            }
+        }
+    }
+
+    private void mergeLayer(VertexDataBuf buffer, Direction direction, int axis, int axisU, int axisV, int layer, int sizeU, int sizeV) {
+        for (int v = 0; v < sizeV; v++) {
+            for (int u = 0; u < sizeU; ) {
+                TextureAtlasRegion texture = mask[v * sizeU + u];
+                if (texture == null) {
+                    u++;
+                    continue;
+                }
+
+                int width = 1;
+                while (u + width < sizeU && mask[v * sizeU + u + width] == texture) {
+                    width++;
+                }
+                int height = 1;
+                extend:
+                while (v + height < sizeV) {
+                    int row = (v + height) * sizeU;
+                    for (int i = 0; i < width; i++) {
+                        if (mask[row + u + i] != texture) {
+                            break extend;
+                        }
+                    }
+                    height++;
+                }
+                for (int j = 0; j < height; j++) {
+                    Arrays.fill(mask, (v + j) * sizeU + u, (v + j) * sizeU + u + width, null);
+                }
+
+                float[] from = new float[3], to = new float[3];
+                from[axis] = layer;
+                to[axis] = layer + 1;
+                from[axisU] = u;
+                to[axisU] = u + width;
+                from[axisV] = v;
+                to[axisV] = v + height;
+                putQuad(buffer, direction, texture, from, to);
+                u += width;
+            }
+        }
+    }
+
+    /**
+     * Put the face of the box, in the same vertex order and texture orientation as the faces of block models.
+     */
+    private static void putQuad(VertexDataBuf buffer, Direction direction, TextureAtlasRegion texture, float[] from, float[] to) {
+        float x0 = from[0], y0 = from[1], z0 = from[2], x1 = to[0], y1 = to[1], z1 = to[2];
+        float[] vertexes;
+        switch (direction) {
+            case NORTH:
+                vertexes = new float[]{x1, y0, z0, x0, y0, z0, x0, y1, z0, x1, y1, z0};
+                break;
+            case SOUTH:
+                vertexes = new float[]{x0, y0, z1, x1, y0, z1, x1, y1, z1, x0, y1, z1};
+                break;
+            case EAST:
+                vertexes = new float[]{x1, y0, z1, x1, y0, z0, x1, y1, z0, x1, y1, z1};
+                break;
+            case WEST:
+                vertexes = new float[]{x0, y0, z0, x0, y0, z1, x0, y1, z1, x0, y1, z0};
+                break;
+            case UP:
+                vertexes = new float[]{x0, y1, z1, x1, y1, z1, x1, y1, z0, x0, y1, z0};
+                break;
+            case DOWN:
+                vertexes = new float[]{x1, y0, z1, x0, y0, z1, x0, y0, z0, x1, y0, z0};
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + direction);
+        }
+        float tilesU = Math.abs(vertexes[3] - vertexes[0]) + Math.abs(vertexes[4] - vertexes[1]) + Math.abs(vertexes[5] - vertexes[2]);
+        float tilesV = Math.abs(vertexes[6] - vertexes[3]) + Math.abs(vertexes[7] - vertexes[4]) + Math.abs(vertexes[8] - vertexes[5]);
+
+        putVertex(buffer, direction, texture, vertexes, 0, 0, tilesV);
+        putVertex(buffer, direction, texture, vertexes, 1, tilesU, tilesV);
+        putVertex(buffer, direction, texture, vertexes, 2, tilesU, 0);
+
+        putVertex(buffer, direction, texture, vertexes, 0, 0, tilesV);
+        putVertex(buffer, direction, texture, vertexes, 2, tilesU, 0);
+        putVertex(buffer, direction, texture, vertexes, 3, 0, 0);
+    }
+
+    private static void putVertex(VertexDataBuf buffer, Direction direction, TextureAtlasRegion texture, float[] vertexes, int vertex, float u, float v) {
+        buffer.pos(vertexes, vertex * 3)
+                .rgba(texture.getMinU(), texture.getMinV(), texture.getMaxU() - texture.getMinU(), texture.getMinV() - texture.getMaxV())
+                .tex(u, v)
+                .normal(direction.offsetX, direction.offsetY, direction.offsetZ)
+                .endVertex();
+    }
+
+    private static int getAxis(Direction direction) {
+        return direction.offsetX != 0 ? 0 : direction.offsetY != 0 ? 1 : 2;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (x << (CHUNK_Y_BITS + CHUNK_Z_BITS)) | (y << CHUNK_Z_BITS) | z;
+    }
+}
@@ -0,0 +1,54 @@
+package engine.client.world.chunk;
+
+import engine.client.world.WorldClient;
+import engine.event.Order;
+import engine.event.SimpleEventBus;
+import engine.event.world.chunk.ChunkEvent;
+import engine.event.world.chunk.ChunkLoadEvent;
+import engine.event.world.chunk.ChunkUnloadEvent;
+import engine.game.Game;
+import engine.server.network.packet.s2c.PacketChunkData;
+import engine.world.World;
+import engine.world.chunk.Chunk;
+import engine.world.chunk.CubicChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WorldClientChunkManagerTest {
+
+    @Test
+    public void resentChunkReplacesOldOne() {
+        WorldClient world = mock(WorldClient.class);
+        Game game = mock(Game.class);
+        SimpleEventBus eventBus = SimpleEventBus.builder().build();
+        when(world.getGame()).thenReturn(game);
+        when(world.getName()).thenReturn("test");
+        when(game.getEventBus()).thenReturn(eventBus);
+        List<String> events = new ArrayList<>();
+        List<Chunk> chunks = new ArrayList<>();
+        eventBus.addListener(Order.DEFAULT, false, ChunkEvent.class, event -> {
+            events.add(event instanceof ChunkLoadEvent ? "load" : event instanceof ChunkUnloadEvent ? "unload" : "other");
+            chunks.add(event.getChunk());
+        });
+
+        WorldClientChunkManager manager = new WorldClientChunkManager(world);
+        Chunk first = manager.loadChunkFromPacket(createPacket(world));
+        assertEquals(List.of("load"), events);
+
+        Chunk second = manager.loadChunkFromPacket(createPacket(world));
+        assertNotSame(first, second);
+        assertEquals(List.of("load", "unload", "load"), events);
+        assertEquals(List.of(first, first, second), chunks);
+        assertSame(second, manager.getChunk(1, 2, 3).orElseThrow());
+    }
+
+    private static PacketChunkData createPacket(World world) {
+        return new PacketChunkData(new CubicChunk(world, 1, 2, 3));
+    }
+}
@@ -14,6 +14,7 @@ import engine.registry.game.*;
 import engine.registry.impl.IdAutoIncreaseRegistry;
 import engine.server.event.NetworkingStartEvent;
 import engine.server.network.packet.*;
+import engine.server.network.packet.c2s.PacketChunkAck;
 import engine.server.network.packet.c2s.PacketLoginProfile;
 import engine.server.network.packet.c2s.PacketPlayerAction;
 import engine.server.network.packet.c2s.PacketPlayerMove;
@@ -74,7 +75,9 @@ public final class EngineModListeners {
         event.register(new PacketProvider.Builder().type(PacketGameData.class).name("game-data").build());
         event.register(new PacketProvider.Builder().type(PacketChunkData.class).name("chunk-data").build());
         event.register(new PacketProvider.Builder().type(PacketUnloadChunk.class).name("chunk-unload").build());
+        event.register(new PacketProvider.Builder().type(PacketChunkAck.class).name("chunk-ack").build());
         event.register(new PacketProvider.Builder().type(PacketBlockUpdate.class).name("block-update").build());
+        event.register(new PacketProvider.Builder().type(PacketMultiBlockUpdate.class).name("multi-block-update").build());
         event.register(new PacketProvider.Builder().type(PacketPlayerMove.class).name("player-move").build());
         event.register(new PacketProvider.Builder().type(PacketPlayerPosView.class).name("player-posview").build());
         event.register(new PacketProvider.Builder().type(PacketPlayerPosView.Confirmed.class).name("player-posview-confirm").build());
@@ -11,12 +11,21 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
+/**
+ * Posting is lock free and may happen on any thread, e.g. the network threads. Registering and unregistering listeners
+ * are serialized by a lock, and take effect for the events posted afterwards.
+ */
 public class SimpleEventBus implements EventBus {
 
-    private final Map<Class<?>, ListenerList> listenerLists = new HashMap<>();
+    private final Map<Class<?>, ListenerList> listenerLists = new ConcurrentHashMap<>();
+    /**
+     * Guarded by {@link #lock}.
+     */
     private final Map<Object, List<RegisteredListener>> registeredListeners = new HashMap<>();
+    private final Object lock = new Object();
 
     private final EventExceptionHandler eventExceptionHandler;
     private final EventListenerFactory eventListenerFactory;
@@ -29,7 +38,7 @@ public class SimpleEventBus implements EventBus {
     @Override
     public boolean post(Event event) {
         ListenerList listenerList = getListenerList(event.getClass());
-        for (RegisteredListener listener : listenerList.getListeners()) {
+        for (RegisteredListener listener : listenerList.getListenerArray()) {
             try {
                 listener.post(event);
             } catch (Exception e) {
@@ -39,32 +48,47 @@ public class SimpleEventBus implements EventBus {
         return event.isCancellable() && ((Cancellable) event).isCancelled();
     }
 
+    @Override
+    public boolean hasListeners(Class<? extends Event> eventType) {
+        return getListenerList(eventType).hasListeners();
+    }
+
     private ListenerList getListenerList(Class<?> eventType) {
-        return listenerLists.computeIfAbsent(eventType, this::createListenerList);
+        ListenerList listenerList = listenerLists.get(eventType);
+        return listenerList != null ? listenerList : createListenerList(eventType);
     }
 
     private ListenerList createListenerList(Class<?> eventType) {
-        ListenerList listenerList = new ListenerList(eventType);
-        for (Map.Entry<Class<?>, ListenerList> entry : listenerLists.entrySet()) {
-            if (entry.getKey().isAssignableFrom(eventType)) {
-                listenerList.addParent(entry.getValue());
-            } else if (eventType.isAssignableFrom(entry.getKey())) {
-                listenerList.addChild(entry.getValue());
+        synchronized (lock) {
+            ListenerList existing = listenerLists.get(eventType);
+            if (existing != null) {
+                return existing;
+            }
+            ListenerList listenerList = new ListenerList(eventType);
+            for (Map.Entry<Class<?>, ListenerList> entry : listenerLists.entrySet()) {
+                if (entry.getKey().isAssignableFrom(eventType)) {
+                    listenerList.addParent(entry.getValue());
+                } else if (eventType.isAssignableFrom(entry.getKey())) {
+                    listenerList.addChild(entry.getValue());
+                }
             }
+            listenerLists.put(eventType, listenerList);
+            return listenerList;
         }
-        return listenerList;
     }
 
     @Override
     public void register(Object target) {
-        if (registeredListeners.containsKey(target)) {
-            throw new IllegalStateException("Listener has been registered");
-        }
+        synchronized (lock) {
+            if (registeredListeners.containsKey(target)) {
+                throw new IllegalStateException("Listener has been registered");
+            }
 
-        if (target instanceof Class) {
-            registerClass((Class<?>) target);
-        } else {
-            registerObject(target);
+            if (target instanceof Class) {
+                registerClass((Class<?>) target);
+            } else {
+                registerObject(target);
+            }
         }
     }
 
@@ -127,11 +151,13 @@ public class SimpleEventBus implements EventBus {
 
     @Override
     public void unregister(Object target) {
-        if (!registeredListeners.containsKey(target)) {
-            return;
-        }
+        synchronized (lock) {
+            if (!registeredListeners.containsKey(target)) {
+                return;
+            }
 
-        registeredListeners.remove(target).forEach(listener -> getListenerList(listener.getEventType()).unregister(listener));
+            registeredListeners.remove(target).forEach(listener -> getListenerList(listener.getEventType()).unregister(listener));
+        }
     }
 
     @Override
@@ -151,12 +177,14 @@ public class SimpleEventBus implements EventBus {
 
     @Override
     public <T extends Event> void addListener(Order order, boolean receiveCancelled, Class<T> eventType, Consumer<T> consumer) {
-        if (registeredListeners.containsKey(consumer)) {
-            throw new IllegalStateException("Listener has been registered");
+        synchronized (lock) {
+            if (registeredListeners.containsKey(consumer)) {
+                throw new IllegalStateException("Listener has been registered");
+            }
+            RegisteredListener listener = new RegisteredListener(eventType, consumer, order, receiveCancelled, null, event -> consumer.accept(eventType.cast(event)));
+            registeredListeners.put(consumer, List.of(listener));
+            getListenerList(eventType).register(listener);
         }
-        RegisteredListener listener = new RegisteredListener(eventType, consumer, order, receiveCancelled, null, event -> consumer.accept(eventType.cast(event)));
-        registeredListeners.put(listener, List.of(listener));
-        getListenerList(eventType).register(listener);
     }
 
     @Override
@@ -176,12 +204,14 @@ public class SimpleEventBus implements EventBus {
 
     @Override
     public <T extends GenericEvent<? extends G>, G> void addGenericListener(Class<G> genericType, Order order, boolean receiveCancelled, Class<T> eventType, Consumer<T> consumer) {
-        if (registeredListeners.containsKey(consumer)) {
-            throw new IllegalStateException("Listener has been registered");
+        synchronized (lock) {
+            if (registeredListeners.containsKey(consumer)) {
+                throw new IllegalStateException("Listener has been registered");
+            }
+            RegisteredListener listener = new RegisteredListener(eventType, consumer, order, receiveCancelled, genericType, event -> consumer.accept(eventType.cast(event)));
+            registeredListeners.put(consumer, List.of(listener));
+            getListenerList(eventType).register(listener);
         }
-        RegisteredListener listener = new RegisteredListener(eventType, consumer, order, receiveCancelled, genericType, event -> consumer.accept(eventType.cast(event)));
-        registeredListeners.put(listener, List.of(listener));
-        getListenerList(eventType).register(listener);
     }
 
     public static Builder builder() {
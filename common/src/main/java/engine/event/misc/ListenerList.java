@@ -7,12 +7,21 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 
+/**
+ * The listeners of an event type, including the listeners of its super types, sorted by order.
+ * <p>
+ * The listeners are flattened into an array whenever they change, so that posting an event only iterates the array. The
+ * list must be modified by one thread at a time, whereas {@link #getListenerArray()} may be called from any thread.
+ */
 public class ListenerList {
 
+    private static final RegisteredListener[] EMPTY = new RegisteredListener[0];
+
     private final Class<?> eventType;
     private final List<ListenerList> children = new ArrayList<>();
 
     private final Collection<RegisteredListener> listeners = SortedList.create(Comparator.comparingInt(o -> o.getOrder().ordinal()), ArrayList::new);
+    private volatile RegisteredListener[] listenerArray = EMPTY;
 
     public ListenerList(Class<?> eventType) {
         this.eventType = eventType;
@@ -24,25 +33,50 @@ public class ListenerList {
 
     public void register(RegisteredListener listener) {
         listeners.add(listener);
-        children.forEach(listenerList -> listenerList.listeners.add(listener));
+        updateListenerArray();
+        children.forEach(listenerList -> {
+            listenerList.listeners.add(listener);
+            listenerList.updateListenerArray();
+        });
     }
 
     public void unregister(RegisteredListener listener) {
         listeners.remove(listener);
-        children.forEach(listenerList -> listenerList.listeners.remove(listener));
+        updateListenerArray();
+        children.forEach(listenerList -> {
+            listenerList.listeners.remove(listener);
+            listenerList.updateListenerArray();
+        });
     }
 
     public void addParent(ListenerList parent) {
         parent.children.add(this);
         listeners.addAll(parent.listeners);
+        updateListenerArray();
     }
 
     public void addChild(ListenerList child) {
         children.add(child);
         child.listeners.addAll(listeners);
+        child.updateListenerArray();
+    }
+
+    private void updateListenerArray() {
+        listenerArray = listeners.isEmpty() ? EMPTY : listeners.toArray(EMPTY);
     }
 
     public Collection<RegisteredListener> getListeners() {
         return listeners;
     }
+
+    /**
+     * @return the listeners sorted by order, must not be modified
+     */
+    public RegisteredListener[] getListenerArray() {
+        return listenerArray;
+    }
+
+    public boolean hasListeners() {
+        return listenerArray.length != 0;
+    }
 }
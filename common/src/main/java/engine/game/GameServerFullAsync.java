@@ -9,6 +9,8 @@ import engine.event.world.WorldUnloadEvent;
 import engine.player.Player;
 import engine.player.Profile;
 import engine.registry.Registries;
+import engine.schedule.TickedScheduler;
+import engine.schedule.TimingWheelScheduler;
 import engine.server.network.NetworkServer;
 import engine.server.player.PlayerManager;
 import engine.server.player.ServerPlayer;
@@ -25,14 +27,12 @@ import javax.annotation.Nonnull;
 import java.nio.file.Path;
 import java.util.*;
 
-/**
- * Each world host in an independent thread.
- */
 public class GameServerFullAsync extends GameBase {
 
     protected final Map<String, World> worlds = new HashMap<>();
     private final NetworkServer networkServer;
     private final PlayerManager playerManager;
+    private final TickedScheduler scheduler = new TimingWheelScheduler();
 //    protected List<Thread> worldThreads;
 
     public GameServerFullAsync(Engine engine, Path storageBasePath, GameData data, NetworkServer networkServer) {
@@ -60,6 +60,13 @@ public class GameServerFullAsync extends GameBase {
         return playerManager;
     }
 
+    /**
+     * @return the scheduler whose tasks run on the server thread at the beginning of each tick
+     */
+    public TickedScheduler getScheduler() {
+        return scheduler;
+    }
+
     @Nonnull
     @Override
     public World createWorld(@Nonnull String providerName, @Nonnull String name, @Nonnull WorldCreationSetting creationConfig) {
@@ -193,7 +200,17 @@ public class GameServerFullAsync extends GameBase {
             tryTerminate();
         }
 
+        scheduler.tick();
         networkServer.tick();
+        tickWorlds();
+        networkServer.flush();
+    }
+
+    /**
+     * Tick the worlds one after another on the server thread, which the scheduler, the network handlers and the event
+     * listeners rely on. A world may still split its own work with other threads, e.g. {@link WorldCommon}'s physics.
+     */
+    protected void tickWorlds() {
         getWorlds().forEach(world -> ((WorldCommon) world).tick());
     }
 
@@ -5,6 +5,8 @@ import engine.registry.impl.SynchronizableIdRegistry;
 import engine.server.network.packet.PacketSyncRegistry;
 
 import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public final class BlockRegistryImpl extends SynchronizableIdRegistry<Block> implements BlockRegistry {
@@ -31,9 +33,12 @@ public final class BlockRegistryImpl extends SynchronizableIdRegistry<Block> imp
 
     @Override
     public void handleRegistrySync(PacketSyncRegistry packet) {
+        Map<String, Integer> mapping = new HashMap<>(nameToId);
         packet.getIdMap().forEach((key, value) -> {
-            Block block = getValue(key);
-            if (block != null) setId(block, value);
+            if (containsKey(key)) mapping.put(key, value);
         });
+        // Rebuild the whole id table at once, so that no stale entry is left behind when ids are swapped
+        remapIds(mapping);
+        nameToId.putAll(mapping);
     }
 }
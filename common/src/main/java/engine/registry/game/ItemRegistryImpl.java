@@ -10,6 +10,8 @@ import engine.registry.impl.SynchronizableIdRegistry;
 import engine.server.network.packet.PacketSyncRegistry;
 
 import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public final class ItemRegistryImpl extends SynchronizableIdRegistry<Item> implements ItemRegistry {
@@ -43,9 +45,12 @@ public final class ItemRegistryImpl extends SynchronizableIdRegistry<Item> imple
 
     @Override
     public void handleRegistrySync(PacketSyncRegistry packet) {
+        Map<String, Integer> mapping = new HashMap<>(nameToId);
         packet.getIdMap().forEach((key, value) -> {
-            Item item = getValue(key);
-            if (item != null) setId(item, value);
+            if (containsKey(key)) mapping.put(key, value);
         });
+        // Rebuild the whole id table at once, so that no stale entry is left behind when ids are swapped
+        remapIds(mapping);
+        nameToId.putAll(mapping);
     }
 }
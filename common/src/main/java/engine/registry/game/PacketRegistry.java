@@ -8,14 +8,23 @@ import engine.server.event.PacketReceivedEvent;
 import engine.server.network.packet.Packet;
 import engine.server.network.packet.PacketProvider;
 import engine.server.network.packet.PacketSyncRegistry;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 
 import javax.annotation.Nonnull;
+import java.util.Map;
 
 public class PacketRegistry extends SynchronizableIdRegistry<PacketProvider> {
 
     //Key: local id    Value: Remapped id (sync to server's id)
 //    private final BiMap<Integer, Integer> mapping = HashBiMap.create();
 
+    /**
+     * The id of each packet type, rebuilt whenever the ids change. It is replaced as a whole, so that the encoders on
+     * the network threads never see it half-built.
+     */
+    private volatile Reference2IntMap<Class<?>> typeToId = new Reference2IntOpenHashMap<>();
+
     public PacketRegistry() {
         super(PacketProvider.class);
 //        Platform.getEngine().getEventBus().register(this);
@@ -24,9 +33,31 @@ public class PacketRegistry extends SynchronizableIdRegistry<PacketProvider> {
     @Nonnull
     @Override
     public PacketProvider register(@Nonnull PacketProvider obj) {
-        if(getValues().stream().anyMatch(packet -> packet.getPacketType() == obj.getPacketType()))
-            throw new RegistrationException(String.format("Packet %s is already registered", obj.getClass().getSimpleName()));
-        return super.register(obj);
+        if (typeToId.containsKey(obj.getPacketType()))
+            throw new RegistrationException(String.format("Packet %s is already registered", obj.getPacketType().getSimpleName()));
+        super.register(obj);
+        rebuildTypeToId();
+        return obj;
+    }
+
+    @Override
+    public void sync(Map<String, Integer> map) {
+        super.sync(map);
+        rebuildTypeToId();
+    }
+
+    @Override
+    public void unsync() {
+        super.unsync();
+        rebuildTypeToId();
+    }
+
+    private void rebuildTypeToId() {
+        Reference2IntMap<Class<?>> typeToId = new Reference2IntOpenHashMap<>(getValues().size());
+        for (PacketProvider provider : getValues()) {
+            typeToId.put(provider.getPacketType(), getId(provider));
+        }
+        this.typeToId = typeToId;
     }
 
     @Listener
@@ -46,11 +77,11 @@ public class PacketRegistry extends SynchronizableIdRegistry<PacketProvider> {
         return getId(packet, true);
     }
 
+    /**
+     * @return the id of the packet type, or 0 if it is not registered
+     */
     public int getId(Packet packet, boolean remapped) {
-        var optional = getEntries().stream()
-                .filter(entry -> entry.getValue().getPacketType() == packet.getClass())
-                .findFirst();
-        return optional.map(entry -> getId(entry.getValue())).orElse(0);
+        return typeToId.getInt(packet.getClass());
 //        int id = optional.map(entry -> getValue(entry.getKey()).getId()).get();
 //        if (remapped) {
 //            return mapping.getOrDefault(id, id);
@@ -100,7 +100,7 @@ public class EngineServerImpl extends EngineBase implements EngineServer {
     protected void finishStage() {
         super.finishStage();
 
-        ticker = new Ticker(this::serverTick, partial -> {}, 20);
+        ticker = new Ticker(this::serverTick, 20);
     }
 
     @Override
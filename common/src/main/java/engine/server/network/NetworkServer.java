@@ -26,6 +26,12 @@ import java.util.Iterator;
 import java.util.List;
 
 public class NetworkServer implements NetworkEndpoint {
+
+    /**
+     * The most packets of a connection handled in one tick, so that a flooding client cannot stall the tick.
+     */
+    public static final int MAX_PACKETS_PER_TICK = 256;
+
     private EventBus eventBus;
 
     private List<ChannelFuture> channels = Collections.synchronizedList(new ArrayList<>());
@@ -61,6 +67,8 @@ public class NetworkServer implements NetworkEndpoint {
                                     .addLast("size_prepender", new PacketSizePrepender()).addLast("encoder", new PacketEncoder());
                             var handler = new NetworkHandler(Side.SERVER, eventBus);
                             ((HandshakeNetworkHandlerContext) handler.getContext()).setEndpoint(NetworkServer.this);
+                            handler.setAutoFlush(false);
+                            handler.setQueueInboundPackets(true);
                             handlers.add(handler);
                             ch.pipeline().addLast("handler", handler);
                         }
@@ -86,6 +94,8 @@ public class NetworkServer implements NetworkEndpoint {
                         protected void initChannel(Channel ch) throws Exception {
                             var handler = new NetworkHandler(Side.SERVER, eventBus);
                             ((HandshakeNetworkHandlerContext) handler.getContext()).setEndpoint(NetworkServer.this);
+                            handler.setAutoFlush(false);
+                            handler.setQueueInboundPackets(true);
                             handlers.add(handler);
                             ch.pipeline().addLast("handler", handler);
                         }
@@ -102,13 +112,20 @@ public class NetworkServer implements NetworkEndpoint {
         }
     }
 
+    /**
+     * Handle the packets received by each connection on the tick thread, at most {@link #MAX_PACKETS_PER_TICK} per
+     * connection each tick.
+     */
     public void tick() {
         synchronized (handlers) {
             for (Iterator<NetworkHandler> iterator = handlers.iterator(); iterator.hasNext(); ) {
                 NetworkHandler handler = iterator.next();
                 if (handler.isChannelOpen()) {
                     handler.tick();
+                    handler.handleQueuedPackets(MAX_PACKETS_PER_TICK);
+                    handler.flush();
                 } else {
+                    handler.discardQueuedPackets();
                     handler.postDisconnect();
                     iterator.remove();
                 }
@@ -116,6 +133,17 @@ public class NetworkServer implements NetworkEndpoint {
         }
     }
 
+    /**
+     * Send the packets written by all handlers since the last flush. Called at the end of each server tick.
+     */
+    public void flush() {
+        synchronized (handlers) {
+            for (NetworkHandler handler : handlers) {
+                handler.flush();
+            }
+        }
+    }
+
     public void close() {
         for (Iterator<ChannelFuture> iterator = channels.iterator(); iterator.hasNext(); ) {
             ChannelFuture channel = iterator.next();
@@ -125,8 +153,20 @@ public class NetworkServer implements NetworkEndpoint {
                 Platform.getLogger().error("Interrupted whilst closing network channel", e);
             }
         }
+        // No tick follows, so the queued packets are dropped and the disconnects deferred to the tick are posted here
+        synchronized (handlers) {
+            for (NetworkHandler handler : handlers) {
+                handler.closeChannel();
+                handler.discardQueuedPackets();
+                handler.postDisconnect();
+            }
+            handlers.clear();
+        }
     }
 
+    /**
+     * Write the packet to all handlers. It is sent on the next flush.
+     */
     public void sendToAll(Packet packet) {
         handlers.forEach(networkHandler -> networkHandler.sendPacket(packet));
     }
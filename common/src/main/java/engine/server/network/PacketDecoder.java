@@ -1,24 +1,36 @@
 package engine.server.network;
 
 import engine.Platform;
+import engine.registry.Registry;
 import engine.server.network.packet.Packet;
 import engine.server.network.packet.PacketProvider;
 import engine.server.network.packet.UnrecognizedPacketException;
 import engine.util.RuntimeEnvironment;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.io.IOException;
 import java.util.List;
 
 public class PacketDecoder extends ByteToMessageDecoder {
+
+    private Registry<PacketProvider> registry;
+
+    private Registry<PacketProvider> getRegistry() {
+        if (registry == null) {
+            registry = Platform.getEngine().getRegistryManager().getRegistry(PacketProvider.class).orElseThrow();
+        }
+        return registry;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
         if(in.readableBytes() != 0){
             var wrapper = new PacketBuf(in);
             var id = wrapper.readVarInt();
-            Packet packet = Platform.getEngine().getRegistryManager().getRegistry(PacketProvider.class).orElseThrow().getValue(id).create();
+            Packet packet = getRegistry().getValue(id).create();
             if(packet == null){
                 throw new UnrecognizedPacketException("Unknown packet id: " + id);
             }
@@ -34,6 +46,7 @@ public class PacketDecoder extends ByteToMessageDecoder {
                         wrapper.readerIndex(nowReaderIndex);
                         Platform.getLogger().debug(String.format("Dumping problematic Packet #%d (%s):\n", id, packet.getClass().getSimpleName()) + dumpBytes(tmp));
                     }
+                    ReferenceCountUtil.release(packet);
                     throw new IOException(String.format("Packet #%d (%s) left out %d bytes while reading buffer!", id, packet.getClass().getSimpleName(), wrapper.readableBytes()));
                 } else {
                     out.add(packet);
@@ -11,13 +11,23 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 public class PacketEncoder extends MessageToByteEncoder<Packet> {
+
+    private PacketRegistry registry;
+
+    private PacketRegistry getRegistry() {
+        if (registry == null) {
+            var registry = Platform.getEngine().getRegistryManager().getRegistry(PacketProvider.class).orElseThrow();
+            if (!(registry instanceof PacketRegistry)) {
+                throw new UnsupportedOperationException();
+            }
+            this.registry = (PacketRegistry) registry;
+        }
+        return registry;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Packet msg, ByteBuf out) throws Exception {
-        var registry = Platform.getEngine().getRegistryManager().getRegistry(PacketProvider.class).orElseThrow();
-        if (!(registry instanceof PacketRegistry)) {
-            throw new UnsupportedOperationException();
-        }
-        var id = ((PacketRegistry) registry).getId(msg);
+        var id = getRegistry().getId(msg);
         if(id == 0 && !(msg instanceof PacketRaw)){
             throw new UnrecognizedPacketException("No record for packet " + msg.getClass().getSimpleName() + " in Packet registry");
         }
@@ -0,0 +1,33 @@
+package engine.server.network.packet.c2s;
+
+import engine.server.network.PacketBuf;
+import engine.server.network.packet.Packet;
+
+/**
+ * Sent by the client after it has processed chunk data, so that the server can send more.
+ */
+public class PacketChunkAck implements Packet {
+
+    private int count;
+
+    public PacketChunkAck() {
+    }
+
+    public PacketChunkAck(int count) {
+        this.count = count;
+    }
+
+    @Override
+    public void write(PacketBuf buf) {
+        buf.writeVarInt(count);
+    }
+
+    @Override
+    public void read(PacketBuf buf) {
+        count = buf.readVarInt();
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -3,18 +3,26 @@ package engine.server.network.packet.s2c;
 import engine.server.network.PacketBuf;
 import engine.server.network.packet.Packet;
 import engine.world.chunk.CubicChunk;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
-public class PacketChunkData implements Packet {
+/**
+ * The data of the chunk is kept in a {@link ByteBuf} which is shared with the encoded data cache of the chunk, so the
+ * packet holds a reference to it and has to be released once it has been handled. Netty releases it after encoding or
+ * after the inbound handler has handled it.
+ *
+ * @see CubicChunk#getEncodedData()
+ */
+public class PacketChunkData implements Packet, ReferenceCounted {
 
     private String worldName;
     private int chunkX;
     private int chunkY;
     private int chunkZ;
-    private byte[] rawData;
+    private ByteBuf data;
 
     public PacketChunkData() {
     }
@@ -24,11 +32,10 @@ public class PacketChunkData implements Packet {
         this.chunkX = chunk.getX();
         this.chunkY = chunk.getY();
         this.chunkZ = chunk.getZ();
-        try (var income = new ByteArrayOutputStream()) {
-            chunk.write(new DataOutputStream(income));
-            rawData = income.toByteArray();
+        try {
+            this.data = chunk.getEncodedData();
         } catch (IOException e) {
-
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -38,7 +45,7 @@ public class PacketChunkData implements Packet {
         buf.writeVarInt(chunkX);
         buf.writeVarInt(chunkY);
         buf.writeVarInt(chunkZ);
-        buf.writeBytes(rawData);
+        buf.writeBytes(data, data.readerIndex(), data.readableBytes());
     }
 
     @Override
@@ -47,10 +54,7 @@ public class PacketChunkData implements Packet {
         chunkX = buf.readVarInt();
         chunkY = buf.readVarInt();
         chunkZ = buf.readVarInt();
-        try (var income = new ByteArrayOutputStream()) {
-            buf.readBytes(income, buf.readableBytes());
-            rawData = income.toByteArray();
-        }
+        data = buf.readRetainedSlice(buf.readableBytes());
     }
 
     public String getWorldName() {
@@ -69,7 +73,57 @@ public class PacketChunkData implements Packet {
         return chunkZ;
     }
 
-    public byte[] getRawData() {
-        return rawData;
+    /**
+     * @return the encoded chunk data, which is only valid until the packet is released
+     */
+    public ByteBuf getData() {
+        return data;
+    }
+
+    @Override
+    public int refCnt() {
+        return data != null ? data.refCnt() : 1;
+    }
+
+    @Override
+    public PacketChunkData retain() {
+        if (data != null) {
+            data.retain();
+        }
+        return this;
+    }
+
+    @Override
+    public PacketChunkData retain(int increment) {
+        if (data != null) {
+            data.retain(increment);
+        }
+        return this;
+    }
+
+    @Override
+    public PacketChunkData touch() {
+        if (data != null) {
+            data.touch();
+        }
+        return this;
+    }
+
+    @Override
+    public PacketChunkData touch(Object hint) {
+        if (data != null) {
+            data.touch(hint);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return data != null && data.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return data != null && data.release(decrement);
     }
 }
@@ -0,0 +1,125 @@
+package engine.server.network.packet.s2c;
+
+import engine.math.BlockPos;
+import engine.server.network.PacketBuf;
+import engine.server.network.packet.Packet;
+import engine.world.chunk.Chunk;
+import it.unimi.dsi.fastutil.shorts.ShortCollection;
+import it.unimi.dsi.fastutil.shorts.ShortIterator;
+
+import java.io.IOException;
+
+import static engine.world.chunk.ChunkConstants.*;
+
+/**
+ * The block changes of one chunk within a tick. Positions are packed relative to the chunk into a short.
+ */
+public class PacketMultiBlockUpdate implements Packet {
+
+    private String worldName;
+    private int chunkX;
+    private int chunkY;
+    private int chunkZ;
+    private short[] positions;
+    private int[] blockIds;
+
+    public PacketMultiBlockUpdate() {
+    }
+
+    /**
+     * @param positions the changed positions packed by {@link #packPosition(int, int, int)}, the current blocks at them
+     *                  are sent
+     */
+    public PacketMultiBlockUpdate(Chunk chunk, ShortCollection positions) {
+        this.worldName = chunk.getWorld().getName();
+        this.chunkX = chunk.getX();
+        this.chunkY = chunk.getY();
+        this.chunkZ = chunk.getZ();
+        this.positions = new short[positions.size()];
+        this.blockIds = new int[positions.size()];
+        int i = 0;
+        for (ShortIterator iterator = positions.iterator(); iterator.hasNext(); i++) {
+            short position = iterator.nextShort();
+            this.positions[i] = position;
+            this.blockIds[i] = chunk.getBlockId(unpackX(position), unpackY(position), unpackZ(position));
+        }
+    }
+
+    public static short packPosition(int x, int y, int z) {
+        return (short) ((x & CHUNK_MAX_X) | ((y & CHUNK_MAX_Y) << CHUNK_X_BITS) | ((z & CHUNK_MAX_Z) << (CHUNK_X_BITS + CHUNK_Y_BITS)));
+    }
+
+    private static int unpackX(short position) {
+        return position & CHUNK_MAX_X;
+    }
+
+    private static int unpackY(short position) {
+        return (position >> CHUNK_X_BITS) & CHUNK_MAX_Y;
+    }
+
+    private static int unpackZ(short position) {
+        return (position >> (CHUNK_X_BITS + CHUNK_Y_BITS)) & CHUNK_MAX_Z;
+    }
+
+    @Override
+    public void write(PacketBuf buf) throws IOException {
+        buf.writeString(worldName);
+        buf.writeVarInt(chunkX);
+        buf.writeVarInt(chunkY);
+        buf.writeVarInt(chunkZ);
+        buf.writeVarInt(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            buf.writeShort(positions[i]);
+            buf.writeVarInt(blockIds[i]);
+        }
+    }
+
+    @Override
+    public void read(PacketBuf buf) throws IOException {
+        worldName = buf.readString();
+        chunkX = buf.readVarInt();
+        chunkY = buf.readVarInt();
+        chunkZ = buf.readVarInt();
+        int count = buf.readVarInt();
+        if (count < 0 || count > BLOCK_COUNT) {
+            throw new IOException("Illegal block change count: " + count);
+        }
+        positions = new short[count];
+        blockIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = buf.readShort();
+            blockIds[i] = buf.readVarInt();
+        }
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkY() {
+        return chunkY;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    public int getCount() {
+        return positions.length;
+    }
+
+    public BlockPos getPos(int index) {
+        short position = positions[index];
+        return BlockPos.of((chunkX << CHUNK_X_BITS) + unpackX(position),
+                (chunkY << CHUNK_Y_BITS) + unpackY(position),
+                (chunkZ << CHUNK_Z_BITS) + unpackZ(position));
+    }
+
+    public int getBlockId(int index) {
+        return blockIds[index];
+    }
+}
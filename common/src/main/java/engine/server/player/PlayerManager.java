@@ -22,12 +22,14 @@ import engine.server.network.ConnectionStatus;
 import engine.server.network.NetworkHandler;
 import engine.server.network.ServerGameplayNetworkHandlerContext;
 import engine.server.network.packet.PacketDisconnect;
+import engine.server.network.packet.c2s.PacketChunkAck;
 import engine.server.network.packet.c2s.PacketPlayerAction;
 import engine.server.network.packet.c2s.PacketPlayerMove;
 import engine.server.network.packet.s2c.PacketBlockUpdate;
 import engine.server.network.packet.s2c.PacketGameData;
 import engine.server.network.packet.s2c.PacketPlayerPosView;
 import engine.util.Side;
+import engine.world.World;
 import engine.world.WorldCommon;
 import engine.world.hit.BlockHitResult;
 import org.joml.Vector3d;
@@ -91,8 +93,7 @@ public class PlayerManager {
                     playerEntity = null;
                 } else {
                     var world = o2.get();
-                    //TODO: configurable entity type, spawn position
-                    playerEntity = world.spawnEntity(CameraEntity.class, 0, 6, 0);
+                    playerEntity = spawnPlayerEntity(world);
                 }
             }
         } else {
@@ -101,13 +102,21 @@ public class PlayerManager {
                 playerEntity = null;
             } else {
                 var world = o2.get();
-                //TODO: configurable entity type, spawn position
-                playerEntity = world.spawnEntity(CameraEntity.class, 0, 6, 0);
+                playerEntity = spawnPlayerEntity(world);
             }
         }
         return new ServerPlayer(profile, networkHandler, playerEntity);
     }
 
+    private Entity spawnPlayerEntity(World world) {
+        //TODO: configurable entity type
+        if (world instanceof WorldCommon) {
+            var spawnPoint = ((WorldCommon) world).getSpawnPoint();
+            return world.spawnEntity(CameraEntity.class, spawnPoint.x(), spawnPoint.y(), spawnPoint.z());
+        }
+        return world.spawnEntity(CameraEntity.class, 0, 6, 0);
+    }
+
     public Set<ServerPlayer> getPlayer() {
         return players;
     }
@@ -154,6 +163,9 @@ public class PlayerManager {
             var player = ((ServerGameplayNetworkHandlerContext) event.getHandler().getContext()).getPlayer();
             savePlayerData(player);
             players.remove(player);
+            if (player.isControllingEntity()) {
+                ((WorldCommon) player.getWorld()).getChunkManager().handlePlayerLeave(player);
+            }
         }
     }
 
@@ -178,7 +190,7 @@ public class PlayerManager {
                     var distY = posY - event.getPacket().getLastPosY();
                     var distZ = posZ - event.getPacket().getLastPosZ();
                     var prev = player.getControlledEntity().getPosition().get(new Vector3d());
-                    player.getControlledEntity().getPosition().set(posX, posY, posZ);
+                    player.getControlledEntity().getWorld().setEntityPosition(player.getControlledEntity(), posX, posY, posZ);
                     ((WorldCommon) player.getWorld()).getChunkManager().handlePlayerMove(player, prev);
                 }
 
@@ -189,6 +201,16 @@ public class PlayerManager {
         }
     }
 
+    @Listener
+    public void onChunkAck(PacketReceivedEvent<PacketChunkAck> event) {
+        if (event.getHandler().getStatus() == ConnectionStatus.GAMEPLAY) {
+            var player = ((ServerGameplayNetworkHandlerContext) event.getHandler().getContext()).getPlayer();
+            if (player.isControllingEntity()) {
+                ((WorldCommon) player.getWorld()).getChunkManager().handleChunkAck(player, event.getPacket().getCount());
+            }
+        }
+    }
+
     @Listener
     public void handlePlayerAction(PacketReceivedEvent<PacketPlayerAction> event) {
         if (event.getHandler().getStatus() != ConnectionStatus.GAMEPLAY) {
@@ -1,7 +1,10 @@
 package engine.world;
 
+import engine.entity.BaseEntity;
 import engine.entity.Entity;
 import engine.entity.EntityProvider;
+import engine.entity.component.EntityComponentStore;
+import engine.entity.component.MotionState;
 import engine.event.EventBus;
 import engine.event.entity.EntityCreateEvent;
 import engine.event.entity.EntityDestroyEvent;
@@ -11,13 +14,29 @@ import engine.logic.Tickable;
 import engine.registry.Registries;
 import engine.world.hit.EntityHitResult;
 import org.apache.commons.lang3.Validate;
-import org.joml.*;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2LongMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import org.joml.AABBd;
+import org.joml.Intersectiond;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static engine.world.chunk.ChunkConstants.*;
+
 public class DefaultEntityManager implements EntityManager, Tickable {
 
     private final World world;
@@ -27,9 +46,40 @@ public class DefaultEntityManager implements EntityManager, Tickable {
 
     private final Set<Entity> entities = new HashSet<>();
 
+    /**
+     * The entities bucketed by the chunk containing their position, so that the range queries only visit the chunks
+     * around the range. Updated when the entities move in {@link #updateEntityPosition(Entity)}.
+     */
+    private final Long2ObjectMap<ObjectArrayList<Entity>> entityBuckets = new Long2ObjectOpenHashMap<>();
+    private final Reference2LongMap<Entity> entityToBucket = new Reference2LongOpenHashMap<>();
+    /**
+     * The largest distance from the position of an entity to the far side of its bounding box. The range queries are
+     * extended by it, since an entity may reach into the range from a chunk outside of it.
+     */
+    private double maxEntityExtent;
+
+    /**
+     * Holds the components of the spawned entities if enabled, see {@link EntityComponentStore}. Every spawned entity
+     * has a {@link MotionState} in it.
+     */
+    private final EntityComponentStore componentStore;
+
     public DefaultEntityManager(World world) {
+        this(world, false);
+    }
+
+    public DefaultEntityManager(World world, boolean useComponentStore) {
         this.world = world;
         this.eventBus = world.getGame().getEventBus();
+        this.componentStore = useComponentStore ? new EntityComponentStore() : null;
+    }
+
+    /**
+     * @return the store holding the components of the spawned entities, or null if not enabled
+     */
+    @Nullable
+    public EntityComponentStore getComponentStore() {
+        return componentStore;
     }
 
     @Override
@@ -65,6 +115,15 @@ public class DefaultEntityManager implements EntityManager, Tickable {
         }
 
         entities.remove(entity);
+        if (entityToBucket.containsKey(entity)) {
+            removeFromBucket(entityToBucket.removeLong(entity), entity);
+        }
+        if (componentStore != null) {
+            componentStore.remove(entity, MotionState.class);
+            if (entity instanceof BaseEntity) {
+                ((BaseEntity) entity).setComponentStore(null);
+            }
+        }
         eventBus.post(new EntityDestroyEvent(entity));
     }
 
@@ -76,7 +135,7 @@ public class DefaultEntityManager implements EntityManager, Tickable {
         return entity;
     }
 
-    private void spawnEntity(Entity entity) {
+    void spawnEntity(Entity entity) {
         if (entities.contains(entity)) {
             return;
         }
@@ -86,15 +145,112 @@ public class DefaultEntityManager implements EntityManager, Tickable {
             return;
         }
         entities.add(entity);
+        if (componentStore != null) {
+            if (entity instanceof BaseEntity) {
+                ((BaseEntity) entity).setComponentStore(componentStore);
+            }
+            componentStore.set(entity, MotionState.class, new MotionState(entity));
+        }
+        long bucket = getBucket(entity);
+        entityToBucket.put(entity, bucket);
+        addToBucket(bucket, entity);
+        updateMaxEntityExtent(entity);
         eventBus.post(new EntitySpawnEvent.Post(entity));
     }
 
+    /**
+     * Move the entity to the bucket of its current position. Must be called after the position of the entity changes,
+     * the range queries may miss the entity otherwise.
+     */
+    public void updateEntityPosition(Entity entity) {
+        if (!entityToBucket.containsKey(entity)) {
+            return;
+        }
+        long oldBucket = entityToBucket.getLong(entity);
+        long bucket = getBucket(entity);
+        if (oldBucket != bucket) {
+            removeFromBucket(oldBucket, entity);
+            entityToBucket.put(entity, bucket);
+            addToBucket(bucket, entity);
+        }
+        updateMaxEntityExtent(entity);
+    }
+
+    @Override
+    public void setEntityPosition(Entity entity, double x, double y, double z) {
+        entity.getPosition().set(x, y, z);
+        updateEntityPosition(entity);
+    }
+
+    private static long getBucket(Entity entity) {
+        Vector3d position = entity.getPosition();
+        return getChunkIndex((int) Math.floor(position.x) >> CHUNK_X_BITS,
+                (int) Math.floor(position.y) >> CHUNK_Y_BITS, (int) Math.floor(position.z) >> CHUNK_Z_BITS);
+    }
+
+    private void addToBucket(long bucket, Entity entity) {
+        ObjectArrayList<Entity> entities = entityBuckets.get(bucket);
+        if (entities == null) {
+            entities = new ObjectArrayList<>();
+            entityBuckets.put(bucket, entities);
+        }
+        entities.add(entity);
+    }
+
+    private void removeFromBucket(long bucket, Entity entity) {
+        ObjectArrayList<Entity> entities = entityBuckets.get(bucket);
+        if (entities == null) {
+            return;
+        }
+        int index = entities.indexOf(entity);
+        if (index != -1) {
+            // Order in a bucket does not matter, move the last one into the hole
+            entities.set(index, entities.get(entities.size() - 1));
+            entities.remove(entities.size() - 1);
+        }
+        if (entities.isEmpty()) {
+            entityBuckets.remove(bucket);
+        }
+    }
+
+    private void updateMaxEntityExtent(Entity entity) {
+        AABBd box = entity.getBoundingBox();
+        if (!entity.hasCollision() || box == null) {
+            return;
+        }
+        double extent = Math.max(Math.max(Math.max(-box.minX, box.maxX), Math.max(-box.minY, box.maxY)), Math.max(-box.minZ, box.maxZ));
+        if (extent > maxEntityExtent) {
+            maxEntityExtent = extent;
+        }
+    }
+
 
     @Override
     public List<Entity> getEntities() {
         return new ArrayList<>(entities);
     }
 
+    @Override
+    public void forEachEntity(Consumer<? super Entity> visitor) {
+        for (Entity entity : entities) {
+            visitor.accept(entity);
+        }
+    }
+
+    /**
+     * Visit the position and motion of each spawned entity, from the dense array of the component store if enabled.
+     * Entities must not be spawned or destroyed by the visitor.
+     */
+    public void forEachMotion(BiConsumer<Entity, MotionState> visitor) {
+        if (componentStore != null) {
+            componentStore.forEach(MotionState.class, visitor);
+            return;
+        }
+        for (Entity entity : entities) {
+            visitor.accept(entity, new MotionState(entity));
+        }
+    }
+
     @Override
     public List<Entity> getEntities(Predicate<Entity> predicate) {
         return entities.stream().filter(predicate).collect(Collectors.toList());
@@ -129,13 +285,71 @@ public class DefaultEntityManager implements EntityManager, Tickable {
 
     @Override
     public List<Entity> getEntitiesWithBoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
-        return getEntities(entity -> testAABB(entity, minX, minY, minZ, maxX, maxY, maxZ));
+        List<Entity> result = new ArrayList<>();
+        forEachEntityWithBoundingBox(minX, minY, minZ, maxX, maxY, maxZ, result::add);
+        return result;
     }
 
     @Override
     public List<Entity> getEntitiesWithSphere(double centerX, double centerY, double centerZ, double radius) {
-        double radiusSquared = radius * radius;
-        return getEntities(entity -> testSphere(entity, centerX, centerY, centerZ, radiusSquared));
+        List<Entity> result = new ArrayList<>();
+        forEachEntityWithSphere(centerX, centerY, centerZ, radius, result::add);
+        return result;
+    }
+
+    @Override
+    public void forEachEntityWithBoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Consumer<? super Entity> visitor) {
+        visitEntities(minX, minY, minZ, maxX, maxY, maxZ, -1, visitor);
+    }
+
+    @Override
+    public void forEachEntityWithSphere(double centerX, double centerY, double centerZ, double radius, Consumer<? super Entity> visitor) {
+        visitEntities(centerX - radius, centerY - radius, centerZ - radius, centerX + radius, centerY + radius, centerZ + radius,
+                radius * radius, visitor);
+    }
+
+    /**
+     * Visit the entities in the box, or in the sphere inscribed in the box if the squared radius is not negative.
+     */
+    private void visitEntities(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                               double radiusSquared, Consumer<? super Entity> visitor) {
+        int fromX = (int) Math.floor(minX - maxEntityExtent) >> CHUNK_X_BITS;
+        int fromY = (int) Math.floor(minY - maxEntityExtent) >> CHUNK_Y_BITS;
+        int fromZ = (int) Math.floor(minZ - maxEntityExtent) >> CHUNK_Z_BITS;
+        int toX = (int) Math.floor(maxX + maxEntityExtent) >> CHUNK_X_BITS;
+        int toY = (int) Math.floor(maxY + maxEntityExtent) >> CHUNK_Y_BITS;
+        int toZ = (int) Math.floor(maxZ + maxEntityExtent) >> CHUNK_Z_BITS;
+        long chunkCount = (long) (toX - fromX + 1) * (toY - fromY + 1) * (toZ - fromZ + 1);
+        if (chunkCount > entityBuckets.size()) {
+            // The range covers more chunks than there are buckets
+            for (ObjectArrayList<Entity> bucket : entityBuckets.values()) {
+                visitBucket(bucket, minX, minY, minZ, maxX, maxY, maxZ, radiusSquared, visitor);
+            }
+            return;
+        }
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    ObjectArrayList<Entity> bucket = entityBuckets.get(getChunkIndex(x, y, z));
+                    if (bucket != null) {
+                        visitBucket(bucket, minX, minY, minZ, maxX, maxY, maxZ, radiusSquared, visitor);
+                    }
+                }
+            }
+        }
+    }
+
+    private void visitBucket(ObjectArrayList<Entity> bucket, double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                             double radiusSquared, Consumer<? super Entity> visitor) {
+        // Backed by an Object[], as the list is not created from a typed array
+        Object[] entities = bucket.elements();
+        for (int i = 0, size = bucket.size(); i < size; i++) {
+            Entity entity = (Entity) entities[i];
+            if (radiusSquared < 0 ? testAABB(entity, minX, minY, minZ, maxX, maxY, maxZ)
+                    : testSphere(entity, (minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, radiusSquared)) {
+                visitor.accept(entity);
+            }
+        }
     }
 
     private boolean testSphere(Entity entity, double centerX, double centerY, double centerZ, double radiusSquared) {
@@ -152,31 +366,43 @@ public class DefaultEntityManager implements EntityManager, Tickable {
 
     @Override
     public EntityHitResult raycastEntity(Vector3fc from, Vector3fc dir, float distance) {
-        List<Entity> entities = getEntitiesWithSphere(from.x(), from.y(), from.z(), distance);
-        entities.sort(Comparator.comparingDouble(entity -> entity.getPosition().distanceSquared(from.x(), from.y(), from.z())));
         Vector3f rayOffset = dir.normalize(new Vector3f()).mul(distance);
+        // Only the entities around the segment of the ray
+        List<Entity> entities = getEntitiesWithBoundingBox(
+                Math.min(from.x(), from.x() + rayOffset.x), Math.min(from.y(), from.y() + rayOffset.y), Math.min(from.z(), from.z() + rayOffset.z),
+                Math.max(from.x(), from.x() + rayOffset.x), Math.max(from.y(), from.y() + rayOffset.y), Math.max(from.z(), from.z() + rayOffset.z));
         Vector2d result = new Vector2d();
+        Entity nearestEntity = null;
+        double nearest = Double.POSITIVE_INFINITY;
         for (Entity entity : entities) {
             if (!entity.hasCollision()) {
                 continue;
             }
 
             Vector3d pos = entity.getPosition();
-            Vector3f local = from.sub((float) pos.x(), (float) pos.y(), (float) pos.z(), new Vector3f());
-            if (entity.getBoundingBox().intersectRay(local.x, local.y, local.z,
-                    rayOffset.x, rayOffset.y, rayOffset.z, result)) {
-                Vector3f hitPoint = local.add(rayOffset.mul((float) result.x, new Vector3f()));
-                return new EntityHitResult(entity, hitPoint);
+            if (entity.getBoundingBox().intersectRay(from.x() - pos.x(), from.y() - pos.y(), from.z() - pos.z(),
+                    rayOffset.x, rayOffset.y, rayOffset.z, result) && result.x < nearest) {
+                nearest = result.x;
+                nearestEntity = entity;
             }
         }
-        return EntityHitResult.failure();
+        if (nearestEntity == null) {
+            return EntityHitResult.failure();
+        }
+        Vector3d pos = nearestEntity.getPosition();
+        Vector3f local = from.sub((float) pos.x(), (float) pos.y(), (float) pos.z(), new Vector3f());
+        Vector3f hitPoint = local.add(rayOffset.mul((float) nearest, new Vector3f()));
+        return new EntityHitResult(nearestEntity, hitPoint);
     }
 
     @Override
     public void tick() {
+        boolean postTickEvent = eventBus.hasListeners(EntityTickEvent.class);
         for (Entity entity : entities) {
             entity.tick();
-            eventBus.post(new EntityTickEvent(entity));
+            if (postTickEvent) {
+                eventBus.post(new EntityTickEvent(entity));
+            }
         }
     }
 }
@@ -14,27 +14,37 @@ import engine.event.block.BlockPlaceEvent;
 import engine.event.block.BlockReplaceEvent;
 import engine.event.block.cause.BlockChangeCause;
 import engine.game.Game;
-import engine.math.AABBs;
 import engine.math.BlockPos;
 import engine.registry.Registries;
 import engine.util.Direction;
+import engine.util.LazyObject;
 import engine.world.chunk.Chunk;
+import engine.world.chunk.ChunkPos;
 import engine.world.chunk.WorldCommonChunkManager;
 import engine.world.collision.DefaultCollisionManager;
+import engine.world.collision.SweptCollisionSolver;
 import engine.world.gen.ChunkGenerator;
 import engine.world.hit.BlockHitResult;
 import engine.world.hit.EntityHitResult;
 import engine.world.hit.HitResult;
+import it.unimi.dsi.fastutil.longs.Long2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectSortedMap;
 import org.joml.*;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.Math;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import static engine.world.chunk.ChunkConstants.*;
@@ -46,10 +56,11 @@ public class WorldCommon implements World {
     private final Path storagePath;
     private final String name;
     private final WorldCreationSetting creationSetting;
+    private final Vector3d spawnPoint = new Vector3d(0, 6, 0);
 
     private final ComponentAgent componentAgent = new ComponentAgent();
 
-    private final PhysicsSystem physicsSystem = new PhysicsSystem(); // prepare for split
+    private final PhysicsSystem physicsSystem = new PhysicsSystem(this);
     private final CollisionManager collisionManager;
     private final DefaultEntityManager entityManager;
 
@@ -67,10 +78,10 @@ public class WorldCommon implements World {
         this.storagePath = storagePath;
         this.name = name;
         this.creationSetting = creationSetting;
-        this.chunkManager = new WorldCommonChunkManager(this, chunkGenerator);
+        this.chunkManager = new WorldCommonChunkManager(this, chunkGenerator, ChunkPos.fromWorldPos(spawnPoint));
 //        this.ticker = new Ticker(this::tick, Ticker.LOGIC_TICK); // TODO: make tps configurable
         this.collisionManager = new DefaultCollisionManager(this);
-        this.entityManager = new DefaultEntityManager(this);
+        this.entityManager = new DefaultEntityManager(this, true);
     }
 
     @Override
@@ -98,6 +109,18 @@ public class WorldCommon implements World {
         return creationSetting;
     }
 
+    public Vector3dc getSpawnPoint() {
+        return spawnPoint;
+    }
+
+    /**
+     * Set the spawn point, which moves the spawn chunks kept loaded with it.
+     */
+    public void setSpawnPoint(double x, double y, double z) {
+        spawnPoint.set(x, y, z);
+        chunkManager.setSpawnCenter(ChunkPos.fromWorldPos(spawnPoint));
+    }
+
     @Override
     public WorldSetting getSetting() {
         return null;
@@ -140,6 +163,10 @@ public class WorldCommon implements World {
         return entityManager.getEntities(predicate);
     }
 
+    public void forEachEntity(Consumer<? super Entity> visitor) {
+        entityManager.forEachEntity(visitor);
+    }
+
     public <T extends Entity> List<T> getEntitiesWithType(Class<T> entityType) {
         return entityManager.getEntitiesWithType(entityType);
     }
@@ -156,6 +183,14 @@ public class WorldCommon implements World {
         return entityManager.getEntitiesWithSphere(centerX, centerY, centerZ, radius);
     }
 
+    public void forEachEntityWithBoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Consumer<? super Entity> visitor) {
+        entityManager.forEachEntityWithBoundingBox(minX, minY, minZ, maxX, maxY, maxZ, visitor);
+    }
+
+    public void forEachEntityWithSphere(double centerX, double centerY, double centerZ, double radius, Consumer<? super Entity> visitor) {
+        entityManager.forEachEntityWithSphere(centerX, centerY, centerZ, radius, visitor);
+    }
+
     public EntityHitResult raycastEntity(Vector3fc from, Vector3fc dir, float distance) {
         return entityManager.raycastEntity(from, dir, distance);
     }
@@ -184,6 +219,11 @@ public class WorldCommon implements World {
         entityManager.doDestroyEntity(entity);
     }
 
+    @Override
+    public void setEntityPosition(Entity entity, double x, double y, double z) {
+        entityManager.setEntityPosition(entity, x, y, z);
+    }
+
     @Override
     public long getGameTick() {
         return gameTick;
@@ -222,7 +262,7 @@ public class WorldCommon implements World {
     }
 
     public void tick() {
-        physicsSystem.tick(this);
+        physicsSystem.tick();
         tickEntityMotion();
         chunkManager.tick();
         entityManager.tick();
@@ -230,11 +270,10 @@ public class WorldCommon implements World {
     }
 
     protected void tickEntityMotion() {
-        for (Entity entity : this.getEntities()) {
-            Vector3d position = entity.getPosition();
-            Vector3f motion = entity.getMotion();
-            position.add(motion);
-        }
+        entityManager.forEachMotion((entity, state) -> {
+            state.getPosition().add(state.getMotion());
+            entityManager.updateEntityPosition(entity);
+        });
     }
 
     @Nonnull
@@ -252,7 +291,7 @@ public class WorldCommon implements World {
 
     @Override
     public boolean isAirBlock(int x, int y, int z) {
-        return getBlock(x, y, z) == Registries.getBlockRegistry().air();
+        return getBlockId(x, y, z) == Registries.getBlockRegistry().getId(Registries.getBlockRegistry().air());
     }
 
     @Nonnull
@@ -285,6 +324,12 @@ public class WorldCommon implements World {
         return oldBlock;
     }
 
+    @Override
+    public int setBlockId(int x, int y, int z, int blockId, @Nonnull BlockChangeCause cause) {
+        return chunkManager.getOrLoadChunk(x >> CHUNK_X_BITS, y >> CHUNK_Y_BITS, z >> CHUNK_Z_BITS)
+                .setBlockId(x, y, z, blockId, cause);
+    }
+
     protected void notifyNeighborChanged(BlockPos pos, Block block, BlockChangeCause cause) {
         for (Direction direction : Direction.values()) {
             BlockPos neighborPos = pos.offset(direction);
@@ -351,91 +396,111 @@ public class WorldCommon implements World {
         this.chunkManager = chunkManager;
     }
 
+    /**
+     * Clips the motion of the entities against the blocks with a {@link SweptCollisionSolver}.
+     * <p>
+     * When many entities move, they are partitioned by region and the regions are solved in parallel on
+     * {@link #POOL}, whilst the world thread waits. The solver only reads the loaded chunks, and the results are applied
+     * on the world thread in the order of the regions so that they do not depend on the scheduling. Nothing else of the
+     * tick runs on the pool.
+     */
     static final class PhysicsSystem {
-        public void tick(World world) {
-            for (Entity entity : world.getEntities()) {
-                Vector3f motion = entity.getMotion();
-                if (motion.x == 0 && motion.y == 0 && motion.z == 0)
-                    continue;
-                Vector3f direction = new Vector3f(motion);
-                Vector3d position = entity.getPosition();
-                AABBd box = entity.getBoundingBox();
-                if (box == null)
-                    continue;
 
-                BlockPos localPos = BlockPos.of(((int) Math.floor(position.x)), ((int) Math.floor(position.y)),
-                        ((int) Math.floor(position.z)));
-
-//                 int directionX = motion.x == -0 ? 0 : Float.compare(motion.x, 0),
-//                 directionY = motion.y == -0 ? 0 : Float.compare(motion.y, 0),
-//                 directionZ = motion.z == -0 ? 0 : Float.compare(motion.z, 0);
+        private static final LazyObject<ForkJoinPool> POOL = new LazyObject<>(() ->
+                new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("World Physics #" + thread.getPoolIndex());
+                    return thread;
+                }, null, false));
+
+        /**
+         * The regions are cubes of 2^REGION_CHUNK_BITS chunks on each axis.
+         */
+        private static final int REGION_CHUNK_BITS = 2;
+        /**
+         * Fewer moving entities are solved on the world thread, as splitting would cost more than it saves.
+         */
+        private static final int PARALLEL_THRESHOLD = 64;
+
+        /**
+         * Shared by all the worlds, as the solver keeps no reference to a world between calls.
+         */
+        private static final ThreadLocal<SweptCollisionSolver> SOLVERS = ThreadLocal.withInitial(SweptCollisionSolver::new);
+
+        private final WorldCommon world;
+        private final List<Entity> movingEntities = new ArrayList<>();
+
+        PhysicsSystem(WorldCommon world) {
+            this.world = world;
+        }
 
-                AABBd entityBox = box.translate(position.add(direction, new Vector3d()), new AABBd());
-                List<BlockPos>[] around = AABBs.around(entityBox, motion);
-                for (List<BlockPos> ls : around) {
-                    ls.add(localPos);
-                }
-                List<BlockPos> faceX = around[0], faceY = around[1], faceZ = around[2];
-
-                double xFix = Integer.MAX_VALUE, yFix = Integer.MAX_VALUE, zFix = Integer.MAX_VALUE;
-                if (faceX.size() != 0) {
-                    for (BlockPos pos : faceX) {
-                        Block block = world.getBlock(pos);
-                        AABBd[] blockBoxes = block.getShape().getBoundingBoxes(world, pos, block);
-                        if (blockBoxes.length != 0)
-                            for (AABBd blockBoxLocal : blockBoxes) {
-                                AABBd blockBox = blockBoxLocal.translate(
-                                        new Vector3f(pos.x(), pos.y(), pos.z()), new AABBd());
-                                if (blockBox.testAABB(entityBox)) {
-                                    xFix = Math.min(xFix, Math.min(Math.abs(blockBox.maxX - entityBox.minX),
-                                            Math.abs(blockBox.minX - entityBox.maxX)));
-                                }
-                            }
-                    }
+        public void tick() {
+            movingEntities.clear();
+            world.entityManager.forEachMotion((entity, state) -> {
+                if (state.isMoving() && entity.getBoundingBox() != null) {
+                    movingEntities.add(entity);
                 }
-                if (faceY.size() != 0) {
-                    for (BlockPos pos : faceY) {
-                        Block block = world.getBlock(pos);
-                        AABBd[] blockBoxes = block.getShape()
-                                .getBoundingBoxes(world, pos, block);
-                        if (blockBoxes.length != 0)
-                            for (AABBd blockBox : blockBoxes) {
-                                AABBd translated = blockBox.translate(
-                                        new Vector3f(pos.x(), pos.y(), pos.z()), new AABBd());
-                                if (translated.testAABB(entityBox)) {
-                                    yFix = Math.min(yFix, Math.min(Math.abs(translated.maxY - entityBox.minY),
-                                            Math.abs(translated.minY - entityBox.maxY)));
-                                }
-                            }
-                    }
+            });
+
+            if (movingEntities.size() < PARALLEL_THRESHOLD) {
+                SweptCollisionSolver solver = SOLVERS.get();
+                for (int i = 0; i < movingEntities.size(); i++) {
+                    Entity entity = movingEntities.get(i);
+                    solver.solve(world, entity.getPosition(), entity.getBoundingBox(), entity.getMotion(), entity.getMotion());
                 }
-                if (faceZ.size() != 0) {
-                    for (BlockPos pos : faceZ) {
-                        Block block = world.getBlock(pos);
-                        AABBd[] blockBoxes = block.getShape()
-                                .getBoundingBoxes(world, pos, block);
-                        if (blockBoxes.length != 0)
-                            for (AABBd blockBox : blockBoxes) {
-                                AABBd translated = blockBox.translate(
-                                        new Vector3f(pos.x(), pos.y(), pos.z()), new AABBd());
-                                if (translated.testAABB(entityBox)) {
-                                    zFix = Math.min(zFix, Math.min(Math.abs(translated.maxZ - entityBox.minZ),
-                                            Math.abs(translated.minZ - entityBox.maxZ)));
-                                }
-                            }
-                    }
+                movingEntities.clear();
+                return;
+            }
+
+            Long2ObjectSortedMap<List<Entity>> regions = new Long2ObjectAVLTreeMap<>();
+            for (Entity entity : movingEntities) {
+                Vector3d position = entity.getPosition();
+                long region = getChunkIndex((int) Math.floor(position.x) >> (CHUNK_X_BITS + REGION_CHUNK_BITS),
+                        (int) Math.floor(position.y) >> (CHUNK_Y_BITS + REGION_CHUNK_BITS),
+                        (int) Math.floor(position.z) >> (CHUNK_Z_BITS + REGION_CHUNK_BITS));
+                List<Entity> entities = regions.get(region);
+                if (entities == null) {
+                    entities = new ArrayList<>();
+                    regions.put(region, entities);
                 }
-                if (Integer.MAX_VALUE != xFix)
-                    motion.x = 0;
-                if (Integer.MAX_VALUE != yFix)
-                    motion.y = 0;
-                if (Integer.MAX_VALUE != zFix) {
-                    motion.z = 0;
+                entities.add(entity);
+            }
+            movingEntities.clear();
+
+            List<RegionTask> tasks = new ArrayList<>(regions.size());
+            for (List<Entity> entities : regions.values()) {
+                tasks.add(new RegionTask(entities));
+            }
+            POOL.get().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+            for (RegionTask task : tasks) {
+                float[] motions = task.motions;
+                for (int i = 0; i < task.entities.size(); i++) {
+                    task.entities.get(i).getMotion().set(motions[i * 3], motions[i * 3 + 1], motions[i * 3 + 2]);
                 }
+            }
+        }
 
-                // if (motion.y > 0) motion.y -= 0.01f;
-                // else if (motion.y < 0) motion.y += 0.01f;
-                // if (Math.abs(motion.y) <= 0.01f) motion.y = 0; // physics update
+        private final class RegionTask extends RecursiveAction {
+            private final List<Entity> entities;
+            private final float[] motions;
+
+            RegionTask(List<Entity> entities) {
+                this.entities = entities;
+                this.motions = new float[entities.size() * 3];
+            }
+
+            @Override
+            protected void compute() {
+                SweptCollisionSolver solver = SOLVERS.get();
+                Vector3f result = new Vector3f();
+                for (int i = 0; i < entities.size(); i++) {
+                    Entity entity = entities.get(i);
+                    solver.solve(world, entity.getPosition(), entity.getBoundingBox(), entity.getMotion(), result);
+                    motions[i * 3] = result.x;
+                    motions[i * 3 + 1] = result.y;
+                    motions[i * 3 + 2] = result.z;
+                }
             }
         }
     }
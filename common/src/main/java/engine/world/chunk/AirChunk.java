@@ -89,6 +89,11 @@ public class AirChunk implements Chunk {
         return AirBlock.AIR;
     }
 
+    @Override
+    public int setBlockId(int x, int y, int z, int blockId, @Nonnull BlockChangeCause cause) {
+        return getBlockId(x, y, z);
+    }
+
     @Override
     public boolean isAirChunk() {
         return true;
@@ -3,15 +3,67 @@ package engine.world.chunk;
 import engine.block.Block;
 import engine.registry.Registries;
 import engine.util.NibbleArray;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import static engine.world.chunk.ChunkConstants.*;
 
+/**
+ * Palette-compressed block id storage of a chunk.
+ * <p>
+ * The storage starts in single value mode, which holds one block id for the whole chunk without any backing array.
+ * When a second block id is set, it switches to palette mode, which stores indices into a local palette with 1, 2, 4
+ * or 8 bits per entry and grows on demand. When the palette exceeds 256 entries, it switches to direct mode, which
+ * stores the block ids with 16 bits per entry. {@link #compact()} shrinks the storage back to the smallest mode which
+ * can hold the block ids currently in use.
+ */
 public class BlockStorage {
 
-    private final NibbleArray data;
+    private static final int SINGLE_VALUE_BITS = 0;
+    private static final int MAX_PALETTE_BITS = 8;
+    private static final int DIRECT_BITS = 16;
+
+    private int bitsPerEntry;
+    private int singleValue;
+
+    private int[] palette;
+    private int paletteSize;
+    private Int2IntMap paletteIndices;
+
+    private NibbleArray data;
 
     public BlockStorage() {
-        this.data = new NibbleArray(8, BLOCK_COUNT);
+        this(0);
+    }
+
+    public BlockStorage(int blockId) {
+        this.bitsPerEntry = SINGLE_VALUE_BITS;
+        this.singleValue = blockId;
+    }
+
+    /**
+     * Creates a copy of the storage, which shares no state with the original.
+     */
+    public BlockStorage(BlockStorage other) {
+        this.bitsPerEntry = other.bitsPerEntry;
+        this.singleValue = other.singleValue;
+        if (other.palette != null) {
+            this.palette = other.palette.clone();
+            this.paletteSize = other.paletteSize;
+            this.paletteIndices = new Int2IntOpenHashMap(other.paletteIndices);
+            this.paletteIndices.defaultReturnValue(-1);
+        }
+        if (other.data != null) {
+            this.data = new NibbleArray(other.bitsPerEntry, BLOCK_COUNT);
+            long[] backingArray = other.data.getBackingArray();
+            System.arraycopy(backingArray, 0, data.getBackingArray(), 0, backingArray.length);
+        }
     }
 
     public Block getBlock(int x, int y, int z) {
@@ -19,18 +71,275 @@ public class BlockStorage {
     }
 
     public int getBlockId(int x, int y, int z) {
-        return data.get(getPosIndex(x, y, z));
+        return get(getPosIndex(x, y, z));
     }
 
     public Block setBlock(int x, int y, int z, Block block) {
-        return Registries.getBlockRegistry().getValue(data.getAndSet(getPosIndex(x, y, z), Registries.getBlockRegistry().getId(block)));
+        return Registries.getBlockRegistry().getValue(setBlockId(x, y, z, Registries.getBlockRegistry().getId(block)));
+    }
+
+    /**
+     * @return the previous block id at the position
+     */
+    public int setBlockId(int x, int y, int z, int blockId) {
+        return getAndSet(getPosIndex(x, y, z), blockId);
+    }
+
+    public int getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+    public boolean isSingleValue() {
+        return bitsPerEntry == SINGLE_VALUE_BITS;
+    }
+
+    private int get(int index) {
+        if (bitsPerEntry == SINGLE_VALUE_BITS) {
+            return singleValue;
+        }
+        int value = data.get(index);
+        return palette != null ? palette[value] : value;
+    }
+
+    private int getAndSet(int index, int blockId) {
+        if (bitsPerEntry == SINGLE_VALUE_BITS) {
+            if (blockId == singleValue) {
+                return blockId;
+            }
+            int oldValue = singleValue;
+            resize(1);
+            addToPalette(oldValue);
+            data.set(index, addToPalette(blockId));
+            return oldValue;
+        }
+
+        if (palette == null) {
+            return data.getAndSet(index, blockId);
+        }
+
+        int paletteIndex = paletteIndices.get(blockId);
+        if (paletteIndex == -1) {
+            if (paletteSize == 1 << bitsPerEntry) {
+                resize(bitsPerEntry << 1);
+                if (palette == null) {
+                    return data.getAndSet(index, blockId);
+                }
+            }
+            paletteIndex = addToPalette(blockId);
+        }
+        return palette[data.getAndSet(index, paletteIndex)];
+    }
+
+    private int addToPalette(int blockId) {
+        int paletteIndex = paletteSize++;
+        palette[paletteIndex] = blockId;
+        paletteIndices.put(blockId, paletteIndex);
+        return paletteIndex;
+    }
+
+    /**
+     * Resizes the storage to the specified bits per entry, keeping the stored block ids.
+     */
+    private void resize(int newBitsPerEntry) {
+        int oldBitsPerEntry = this.bitsPerEntry;
+        int[] oldPalette = this.palette;
+        int oldPaletteSize = this.paletteSize;
+        NibbleArray oldData = this.data;
+
+        if (newBitsPerEntry > MAX_PALETTE_BITS) {
+            newBitsPerEntry = DIRECT_BITS;
+            this.palette = null;
+            this.paletteIndices = null;
+            this.paletteSize = 0;
+        } else {
+            this.palette = new int[1 << newBitsPerEntry];
+            this.paletteIndices = new Int2IntOpenHashMap();
+            this.paletteIndices.defaultReturnValue(-1);
+            this.paletteSize = 0;
+        }
+        this.bitsPerEntry = newBitsPerEntry;
+        this.data = new NibbleArray(newBitsPerEntry, BLOCK_COUNT);
+
+        if (oldBitsPerEntry == SINGLE_VALUE_BITS) {
+            return;
+        }
+
+        if (oldPalette != null && palette != null) {
+            for (int i = 0; i < oldPaletteSize; i++) {
+                addToPalette(oldPalette[i]);
+            }
+        }
+
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            int value = oldData.get(i);
+            if (oldPalette != null) {
+                value = oldPalette[value];
+            }
+            data.set(i, palette != null ? paletteIndices.get(value) : value);
+        }
+    }
+
+    /**
+     * Shrinks the storage to the smallest mode which can hold the block ids currently in use.
+     */
+    public void compact() {
+        if (bitsPerEntry == SINGLE_VALUE_BITS) {
+            return;
+        }
+
+        IntSet usedIds = new IntOpenHashSet();
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            usedIds.add(get(i));
+        }
+
+        int usedCount = usedIds.size();
+        if (usedCount == 1) {
+            singleValue = get(0);
+            bitsPerEntry = SINGLE_VALUE_BITS;
+            palette = null;
+            paletteIndices = null;
+            paletteSize = 0;
+            data = null;
+            return;
+        }
+
+        int newBitsPerEntry = getBitsPerEntry(usedCount);
+        if (newBitsPerEntry == bitsPerEntry && (palette == null || usedCount == paletteSize)) {
+            return;
+        }
+
+        int[] blockIds = new int[BLOCK_COUNT];
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            blockIds[i] = get(i);
+        }
+
+        bitsPerEntry = SINGLE_VALUE_BITS;
+        resize(newBitsPerEntry);
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            getAndSet(i, blockIds[i]);
+        }
+    }
+
+    private static int getBitsPerEntry(int paletteSize) {
+        if (paletteSize <= 2) return 1;
+        if (paletteSize <= 4) return 2;
+        if (paletteSize <= 16) return 4;
+        if (paletteSize <= 256) return 8;
+        return DIRECT_BITS;
     }
 
     private int getPosIndex(int x, int y, int z) {
         return (x & CHUNK_MAX_X) | ((y & CHUNK_MAX_Y) << CHUNK_X_BITS) | ((z & CHUNK_MAX_Z) << CHUNK_X_BITS + CHUNK_Y_BITS);
     }
 
-    public NibbleArray getData() {
-        return data;
+    public void write(DataOutput output) throws IOException {
+        output.writeByte(bitsPerEntry);
+        if (bitsPerEntry == SINGLE_VALUE_BITS) {
+            output.writeInt(singleValue);
+            return;
+        }
+
+        if (palette != null) {
+            output.writeShort(paletteSize);
+            for (int i = 0; i < paletteSize; i++) {
+                output.writeInt(palette[i]);
+            }
+        }
+
+        for (long value : data.getBackingArray()) {
+            output.writeLong(value);
+        }
+    }
+
+    /**
+     * Write the block ids in position order as runs of equal ids, each an unsigned short of the run length followed by
+     * an unsigned short of the id.
+     */
+    public void writeRuns(DataOutput output) throws IOException {
+        int runStart = 0;
+        int runId = get(0);
+        for (int i = 1; i <= BLOCK_COUNT; i++) {
+            int id = i < BLOCK_COUNT ? get(i) : -1;
+            if (id != runId) {
+                output.writeShort(i - runStart);
+                output.writeShort(runId);
+                runStart = i;
+                runId = id;
+            }
+        }
+    }
+
+    /**
+     * Read the storage written by {@link #writeRuns(DataOutput)}.
+     */
+    public static BlockStorage readRuns(DataInput input) throws IOException {
+        BlockStorage storage = null;
+        int index = 0;
+        while (index < BLOCK_COUNT) {
+            int run = input.readUnsignedShort();
+            int id = input.readUnsignedShort();
+            if (run == 0 || index + run > BLOCK_COUNT) {
+                throw new IOException("Illegal block run length: " + run);
+            }
+            if (storage == null) {
+                storage = new BlockStorage(id);
+                index = run;
+                continue;
+            }
+            for (int end = index + run; index < end; index++) {
+                storage.getAndSet(index, id);
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * Read the storage written before palette compression, which is the raw block ids with 8 bits per entry.
+     */
+    public static BlockStorage readLegacy(DataInput input) throws IOException {
+        NibbleArray raw = new NibbleArray(8, BLOCK_COUNT);
+        long[] backingArray = raw.getBackingArray();
+        for (int i = 0; i < backingArray.length; i++) {
+            backingArray[i] = input.readLong();
+        }
+        BlockStorage storage = new BlockStorage();
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            storage.getAndSet(i, raw.get(i));
+        }
+        return storage;
+    }
+
+    public void read(DataInput input) throws IOException {
+        int bitsPerEntry = input.readByte();
+        if (bitsPerEntry == SINGLE_VALUE_BITS) {
+            this.bitsPerEntry = SINGLE_VALUE_BITS;
+            this.singleValue = input.readInt();
+            this.palette = null;
+            this.paletteIndices = null;
+            this.paletteSize = 0;
+            this.data = null;
+            return;
+        }
+
+        if (bitsPerEntry != DIRECT_BITS && (bitsPerEntry > MAX_PALETTE_BITS || Integer.bitCount(bitsPerEntry) != 1)) {
+            throw new IOException("Illegal bits per entry: " + bitsPerEntry);
+        }
+
+        this.bitsPerEntry = SINGLE_VALUE_BITS;
+        resize(bitsPerEntry);
+        if (palette != null) {
+            int paletteSize = input.readShort();
+            if (paletteSize > palette.length) {
+                throw new IOException("Illegal palette size: " + paletteSize);
+            }
+            for (int i = 0; i < paletteSize; i++) {
+                addToPalette(input.readInt());
+            }
+        }
+
+        long[] backingArray = data.getBackingArray();
+        for (int i = 0; i < backingArray.length; i++) {
+            backingArray[i] = input.readLong();
+        }
     }
 }
@@ -0,0 +1,70 @@
+package engine.world.chunk;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A ticket keeps the chunks within {@link #getRadius()} of {@link #getCenter()} loaded.
+ *
+ * @see ChunkTicketManager
+ */
+public final class ChunkTicket {
+
+    public enum Type {
+        /**
+         * Covers the view area of a player. Moved with the player.
+         */
+        PLAYER,
+        /**
+         * Covers the spawn area of the world.
+         */
+        SPAWN,
+        /**
+         * Requested by mods. May expire after a number of ticks.
+         */
+        PLUGIN
+    }
+
+    public static final long NEVER_EXPIRE = Long.MAX_VALUE;
+
+    private final Type type;
+    private final ChunkPos center;
+    private final int radius;
+    private final long expireTick;
+
+    ChunkTicket(Type type, ChunkPos center, int radius, long expireTick) {
+        this.type = type;
+        this.center = center;
+        this.radius = radius;
+        this.expireTick = expireTick;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public ChunkPos getCenter() {
+        return center;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public long getExpireTick() {
+        return expireTick;
+    }
+
+    public boolean isExpired(long gameTick) {
+        return gameTick >= expireTick;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("type", type)
+                .add("center", center)
+                .add("radius", radius)
+                .add("expireTick", expireTick)
+                .toString();
+    }
+}
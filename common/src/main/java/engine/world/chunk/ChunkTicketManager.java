@@ -0,0 +1,79 @@
+package engine.world.chunk;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+
+import static engine.world.chunk.ChunkConstants.getChunkIndex;
+
+/**
+ * Counts the tickets covering each chunk. A chunk which is not covered by any ticket may be unloaded.
+ */
+@ThreadSafe
+public class ChunkTicketManager {
+
+    private final Long2IntMap ticketCounts = new Long2IntOpenHashMap();
+    private final List<ChunkTicket> tickets = new ArrayList<>();
+
+    public synchronized ChunkTicket addTicket(ChunkTicket.Type type, ChunkPos center, int radius, long expireTick) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("radius cannot be a negative number");
+        }
+        ChunkTicket ticket = new ChunkTicket(type, center.toUnmodifiable(), radius, expireTick);
+        tickets.add(ticket);
+        updateTicketCounts(ticket, 1);
+        return ticket;
+    }
+
+    public synchronized void removeTicket(ChunkTicket ticket) {
+        if (tickets.remove(ticket)) {
+            updateTicketCounts(ticket, -1);
+        }
+    }
+
+    public synchronized void removeExpiredTickets(long gameTick) {
+        for (int i = tickets.size() - 1; i >= 0; i--) {
+            ChunkTicket ticket = tickets.get(i);
+            if (ticket.isExpired(gameTick)) {
+                tickets.remove(i);
+                updateTicketCounts(ticket, -1);
+            }
+        }
+    }
+
+    public synchronized boolean hasTicket(long chunkIndex) {
+        return ticketCounts.containsKey(chunkIndex);
+    }
+
+    public synchronized boolean hasTicket(int chunkX, int chunkY, int chunkZ) {
+        return hasTicket(getChunkIndex(chunkX, chunkY, chunkZ));
+    }
+
+    public synchronized List<ChunkTicket> getTickets() {
+        return List.copyOf(tickets);
+    }
+
+    private void updateTicketCounts(ChunkTicket ticket, int delta) {
+        ChunkPos center = ticket.getCenter();
+        int radius = ticket.getRadius();
+        int radiusSquared = radius * radius;
+        for (int dx = -radius; dx <= radius; dx++) {
+            int yBound = (int) Math.sqrt(radiusSquared - dx * dx);
+            for (int dy = -yBound; dy <= yBound; dy++) {
+                int zBound = (int) Math.sqrt(radiusSquared - dx * dx - dy * dy);
+                for (int dz = -zBound; dz <= zBound; dz++) {
+                    long index = getChunkIndex(center.x() + dx, center.y() + dy, center.z() + dz);
+                    int count = ticketCounts.get(index) + delta;
+                    if (count <= 0) {
+                        ticketCounts.remove(index);
+                    } else {
+                        ticketCounts.put(index, count);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -5,8 +5,11 @@ import engine.event.block.cause.BlockChangeCause;
 import engine.game.GameServerFullAsync;
 import engine.math.BlockPos;
 import engine.registry.Registries;
-import engine.server.network.packet.s2c.PacketBlockUpdate;
 import engine.world.World;
+import engine.world.WorldCommon;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.joml.Vector3i;
 import org.joml.Vector3ic;
 
@@ -20,6 +23,13 @@ import static engine.world.chunk.ChunkConstants.*;
 
 public class CubicChunk implements Chunk {
 
+    /**
+     * Written before the format version. The chunks written before the format was versioned start with their non-air
+     * block count instead, which is never above {@link ChunkConstants#BLOCK_COUNT}.
+     */
+    private static final int FORMAT_MARKER = 0xFFFF;
+    private static final int FORMAT_VERSION = 1;
+
     private final WeakReference<World> world;
     private final ChunkPos pos;
 
@@ -28,8 +38,22 @@ public class CubicChunk implements Chunk {
     private final Vector3ic center;
 
     private BlockStorage blockStorage;
+    /**
+     * Whether the storage is shared with a snapshot, in which case it is copied by the next change instead of modified.
+     */
+    private boolean storageShared;
     private int nonAirBlockCount = 0;
 
+    /**
+     * Whether the chunk has been changed since it was loaded or last saved.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * The cached result of {@link #write(DataOutput)} in a pooled direct buffer, released when a block changes.
+     */
+    private ByteBuf encodedData;
+
     public CubicChunk(World world, int chunkX, int chunkY, int chunkZ) {
         this.world = new WeakReference<>(world);
         this.pos = ChunkPos.of(chunkX, chunkY, chunkZ);
@@ -38,6 +62,65 @@ public class CubicChunk implements Chunk {
         this.center = min.add(CHUNK_X_SIZE >> 1, CHUNK_Y_SIZE >> 1, CHUNK_Z_SIZE >> 1, new Vector3i());
     }
 
+    private CubicChunk(CubicChunk other) {
+        this.world = other.world;
+        this.pos = other.pos;
+        this.min = other.min;
+        this.max = other.max;
+        this.center = other.center;
+        this.blockStorage = other.blockStorage;
+        this.storageShared = true;
+        this.nonAirBlockCount = other.nonAirBlockCount;
+    }
+
+    /**
+     * Share the blocks of this chunk with a copy, so that the copy can be saved on another thread whilst this chunk
+     * keeps changing. The storage is copied by the next change of this chunk rather than now, so taking a snapshot
+     * costs no pass over the blocks. The copy is not dirty, and must not be modified once shared between threads.
+     */
+    public CubicChunk snapshot() {
+        storageShared = true;
+        return new CubicChunk(this);
+    }
+
+    /**
+     * Get the encoded data of this chunk as written by {@link #write(DataOutput)}. The data is encoded once and cached
+     * until a block changes, so that sending the chunk to many players serializes it only once.
+     *
+     * @return a retained duplicate of the cached data, which must be released by the caller
+     */
+    public synchronized ByteBuf getEncodedData() throws IOException {
+        if (encodedData == null) {
+            ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+            try {
+                write(new ByteBufOutputStream(buf));
+            } catch (IOException | RuntimeException e) {
+                buf.release();
+                throw e;
+            }
+            encodedData = buf;
+        }
+        return encodedData.retainedDuplicate();
+    }
+
+    /**
+     * Release the cached encoded data. Must be called when the chunk is unloaded.
+     */
+    public synchronized void releaseEncodedData() {
+        if (encodedData != null) {
+            encodedData.release();
+            encodedData = null;
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
     @Nonnull
     @Override
     public World getWorld() {
@@ -102,28 +185,58 @@ public class CubicChunk implements Chunk {
 
     @Override
     public Block setBlock(@Nonnull BlockPos pos, @Nonnull Block block, @Nonnull BlockChangeCause cause) {
-        var block1 = setBlock(pos.x(), pos.y(), pos.z(), block);
-        var world1 = getWorld();
-        if (!(cause instanceof BlockChangeCause.WorldGenCause))
-            if (world1.getGame() instanceof GameServerFullAsync) {
-                ((GameServerFullAsync) world1.getGame()).getNetworkServer().sendToAll(new PacketBlockUpdate(world1, pos));
+        var registry = Registries.getBlockRegistry();
+        return registry.getValue(setBlockId(pos.x(), pos.y(), pos.z(), registry.getId(block), cause));
+    }
+
+    @Override
+    public int setBlockId(int x, int y, int z, int blockId, @Nonnull BlockChangeCause cause) {
+        int oldBlockId = setBlockId(x, y, z, blockId);
+        if (oldBlockId != blockId && !(cause instanceof BlockChangeCause.WorldGenCause)) {
+            var world1 = getWorld();
+            if (world1.getGame() instanceof GameServerFullAsync && world1 instanceof WorldCommon) {
+                ((WorldCommon) world1).getChunkManager().handleBlockChange(this, x, y, z);
             }
-        return block1;
+        }
+        return oldBlockId;
     }
 
     protected Block setBlock(int x, int y, int z, Block block) {
+        var registry = Registries.getBlockRegistry();
+        return registry.getValue(setBlockId(x, y, z, registry.getId(block)));
+    }
+
+    protected int setBlockId(int x, int y, int z, int blockId) {
+        int airId = Registries.getBlockRegistry().getId(Registries.getBlockRegistry().air());
         if (blockStorage == null) {
-            blockStorage = new BlockStorage();
+            if (blockId == airId) {
+                return airId;
+            }
+            blockStorage = new BlockStorage(airId);
+            storageShared = false;
+        }
+
+        if (storageShared) {
+            int oldBlockId = blockStorage.getBlockId(x, y, z);
+            if (oldBlockId == blockId) {
+                return oldBlockId;
+            }
+            // A snapshot may be reading the storage
+            blockStorage = new BlockStorage(blockStorage);
+            storageShared = false;
         }
 
-        if (block != Registries.getBlockRegistry().air()) {
+        int oldBlockId = blockStorage.setBlockId(x, y, z, blockId);
+        if (oldBlockId != blockId) {
+            dirty = true;
+            releaseEncodedData();
+        }
+        if (oldBlockId == airId && blockId != airId) {
             nonAirBlockCount++;
-        } else {
+        } else if (oldBlockId != airId && blockId == airId) {
             nonAirBlockCount--;
         }
-
-        var block1 = blockStorage.setBlock(x, y, z, block);
-        return block1;
+        return oldBlockId;
     }
 
     @Override
@@ -131,26 +244,84 @@ public class CubicChunk implements Chunk {
         return nonAirBlockCount == 0;
     }
 
+    /**
+     * Write the blocks as they are stored, without modifying them, so that a snapshot can be written whilst other
+     * threads read it.
+     */
     public void write(DataOutput output) throws IOException {
+        write(output, blockStorage);
+    }
+
+    /**
+     * Write the blocks like {@link #write(DataOutput)}, but from a compacted copy of the storage, so that the block ids
+     * no longer in use do not take space. The copy costs a pass over the blocks, so this is meant for the save thread.
+     */
+    public void writeCompacted(DataOutput output) throws IOException {
+        BlockStorage compacted = null;
+        if (nonAirBlockCount != 0) {
+            compacted = new BlockStorage(blockStorage);
+            compacted.compact();
+        }
+        write(output, compacted);
+    }
+
+    private void write(DataOutput output, BlockStorage blockStorage) throws IOException {
+        output.writeShort(FORMAT_MARKER);
+        output.writeByte(FORMAT_VERSION);
         output.writeShort(nonAirBlockCount);
 
         if (nonAirBlockCount != 0) {
-            long[] data = blockStorage.getData().getBackingArray();
-            for (int i = 0; i < data.length; i++) {
-                output.writeLong(data[i]);
-            }
+            blockStorage.write(output);
+        }
+    }
+
+    /**
+     * Write the blocks as runs of equal block ids instead of as they are stored, for {@link engine.world.chunk.storage.ChunkCodecs#RLE}.
+     */
+    public void writeRuns(DataOutput output) throws IOException {
+        output.writeShort(nonAirBlockCount);
+
+        if (nonAirBlockCount != 0) {
+            blockStorage.writeRuns(output);
+        }
+    }
+
+    /**
+     * Read the blocks written by {@link #writeRuns(DataOutput)}.
+     */
+    public void readRuns(DataInput input) throws IOException {
+        releaseEncodedData();
+        nonAirBlockCount = input.readUnsignedShort();
+
+        if (nonAirBlockCount != 0) {
+            blockStorage = BlockStorage.readRuns(input);
+            storageShared = false;
         }
     }
 
     public void read(DataInput input) throws IOException {
-        nonAirBlockCount = input.readShort();
+        releaseEncodedData();
+        int header = input.readUnsignedShort();
+        if (header != FORMAT_MARKER) {
+            // Written before palette compression
+            nonAirBlockCount = header;
+            if (nonAirBlockCount != 0) {
+                blockStorage = BlockStorage.readLegacy(input);
+                storageShared = false;
+            }
+            return;
+        }
+
+        int version = input.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported chunk format version: " + version);
+        }
+        nonAirBlockCount = input.readUnsignedShort();
 
         if (nonAirBlockCount != 0) {
             blockStorage = new BlockStorage();
-            long[] data = blockStorage.getData().getBackingArray();
-            for (int i = 0; i < data.length; i++) {
-                data[i] = input.readLong();
-            }
+            storageShared = false;
+            blockStorage.read(input);
         }
     }
 }
@@ -0,0 +1,269 @@
+package engine.world.chunk;
+
+import engine.player.Player;
+import engine.server.network.packet.Packet;
+import engine.server.network.packet.s2c.PacketChunkData;
+import engine.server.network.packet.s2c.PacketUnloadChunk;
+import it.unimi.dsi.fastutil.longs.*;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import org.joml.Vector3dc;
+import org.joml.Vector3fc;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static engine.world.chunk.ChunkConstants.*;
+
+/**
+ * Streams the chunks within the view distance of a player to its client.
+ * <p>
+ * Chunks are queued when they come into view and sent nearest first, preferring the chunks in front of the player.
+ * Each tick, at most {@link #MAX_BYTES_PER_TICK} bytes of chunk data are sent, and no more chunks are sent whilst
+ * {@link #MAX_UNACKNOWLEDGED_CHUNKS} chunks have not been acknowledged by the client.
+ */
+@NotThreadSafe
+final class PlayerChunkView {
+
+    static final int MAX_BYTES_PER_TICK = 256 * 1024;
+    static final int MAX_UNACKNOWLEDGED_CHUNKS = 64;
+    private static final int MAX_LOADING_CHUNKS = 32;
+    /**
+     * The most times a chunk is loaded for the view before it is given up on until it comes into view again.
+     */
+    static final int MAX_LOAD_ATTEMPTS = 3;
+    /**
+     * The ticks before a failed load is retried, doubled by each further failure.
+     */
+    static final int RETRY_DELAY_TICKS = 20;
+
+    private final WorldCommonChunkManager chunkManager;
+    private final Player player;
+
+    private int centerX;
+    private int centerY;
+    private int centerZ;
+    private int viewDistance = -1;
+
+    /**
+     * The chunks waiting to be sent, sorted by descending priority value so that the next chunk is at the end.
+     */
+    private final LongArrayList pendingChunks = new LongArrayList();
+    private final LongSet loadingChunks = new LongOpenHashSet();
+    private final LongSet sentChunks = new LongOpenHashSet();
+    /**
+     * The failed loads of the chunks in view.
+     */
+    private final Long2IntMap failedLoads = new Long2IntOpenHashMap();
+    /**
+     * The ticks left before the chunks which failed to load are queued again.
+     */
+    private final Long2IntMap retryDelays = new Long2IntOpenHashMap();
+
+    /**
+     * Decremented when the client acknowledges chunks.
+     */
+    private final AtomicInteger unacknowledgedChunks = new AtomicInteger();
+
+    PlayerChunkView(WorldCommonChunkManager chunkManager, Player player) {
+        this.chunkManager = chunkManager;
+        this.player = player;
+    }
+
+    void acknowledge(int count) {
+        unacknowledgedChunks.updateAndGet(value -> Math.max(0, value - count));
+    }
+
+    /**
+     * @return whether the chunk has been sent to the client and is still in view
+     */
+    boolean hasSent(long index) {
+        return sentChunks.contains(index);
+    }
+
+    /**
+     * Send the whole chunk again, bypassing the queue, because too many of its blocks have changed.
+     */
+    void resendChunk(CubicChunk chunk) {
+        player.getNetworkHandler().sendPacket(new PacketChunkData(chunk));
+        unacknowledgedChunks.incrementAndGet();
+    }
+
+    void sendPacket(Packet packet) {
+        player.getNetworkHandler().sendPacket(packet);
+    }
+
+    void tick(int viewDistance) {
+        if (!player.isControllingEntity() || player.getWorld() != chunkManager.getWorld()) {
+            return;
+        }
+
+        Vector3dc position = player.getControlledEntity().getPosition();
+        ChunkPos center = ChunkPos.fromWorldPos(position);
+        if (this.viewDistance != viewDistance || center.x() != centerX || center.y() != centerY || center.z() != centerZ) {
+            updateView(center.x(), center.y(), center.z(), viewDistance);
+            sortPendingChunks(position);
+        }
+
+        tickRetries();
+        sendPendingChunks();
+    }
+
+    /**
+     * Only walks the sphere of the new view without materializing it, and queues the chunks which were not in the old
+     * view.
+     */
+    private void updateView(int newCenterX, int newCenterY, int newCenterZ, int newViewDistance) {
+        int oldCenterX = centerX, oldCenterY = centerY, oldCenterZ = centerZ, oldViewDistance = viewDistance;
+        centerX = newCenterX;
+        centerY = newCenterY;
+        centerZ = newCenterZ;
+        viewDistance = newViewDistance;
+
+        LongIterator iterator = sentChunks.iterator();
+        while (iterator.hasNext()) {
+            long index = iterator.nextLong();
+            if (!isInView(index)) {
+                iterator.remove();
+                player.getNetworkHandler().sendPacket(new PacketUnloadChunk(chunkManager.getWorld().getName(),
+                        getChunkX(index), getChunkY(index), getChunkZ(index)));
+            }
+        }
+
+        long[] pending = pendingChunks.elements();
+        int size = 0;
+        for (int i = 0, oldSize = pendingChunks.size(); i < oldSize; i++) {
+            if (isInView(pending[i])) {
+                pending[size++] = pending[i];
+            }
+        }
+        pendingChunks.size(size);
+        failedLoads.keySet().removeIf((long index) -> !isInView(index));
+        retryDelays.keySet().removeIf((long index) -> !isInView(index));
+
+        int viewDistanceSquared = newViewDistance * newViewDistance;
+        int oldViewDistanceSquared = oldViewDistance * oldViewDistance;
+        for (int dx = -newViewDistance; dx <= newViewDistance; dx++) {
+            for (int dy = -newViewDistance; dy <= newViewDistance; dy++) {
+                for (int dz = -newViewDistance; dz <= newViewDistance; dz++) {
+                    if (dx * dx + dy * dy + dz * dz > viewDistanceSquared) {
+                        continue;
+                    }
+                    int x = newCenterX + dx, y = newCenterY + dy, z = newCenterZ + dz;
+                    if (oldViewDistance >= 0 && distanceSquared(x - oldCenterX, y - oldCenterY, z - oldCenterZ) <= oldViewDistanceSquared) {
+                        continue;
+                    }
+                    long index = getChunkIndex(x, y, z);
+                    if (!sentChunks.contains(index) && !loadingChunks.contains(index) && !retryDelays.containsKey(index)) {
+                        pendingChunks.add(index);
+                    }
+                }
+            }
+        }
+    }
+
+    private void sortPendingChunks(Vector3dc position) {
+        Vector3fc rotation = player.getControlledEntity().getRotation();
+        double pitch = Math.toRadians(rotation.y());
+        double yaw = Math.toRadians(-rotation.x());
+        double lookX = Math.cos(pitch) * Math.cos(yaw);
+        double lookY = Math.sin(pitch);
+        double lookZ = Math.cos(pitch) * Math.sin(yaw);
+        double chunkX = position.x() / CHUNK_X_SIZE - 0.5;
+        double chunkY = position.y() / CHUNK_Y_SIZE - 0.5;
+        double chunkZ = position.z() / CHUNK_Z_SIZE - 0.5;
+
+        LongArrays.quickSort(pendingChunks.elements(), 0, pendingChunks.size(), (a, b) -> Double.compare(
+                getPriority(b, chunkX, chunkY, chunkZ, lookX, lookY, lookZ),
+                getPriority(a, chunkX, chunkY, chunkZ, lookX, lookY, lookZ)));
+    }
+
+    /**
+     * The squared distance to the player, weighted down to half for the chunks in front of the player and up to one
+     * and a half for the chunks behind.
+     */
+    private static double getPriority(long index, double chunkX, double chunkY, double chunkZ, double lookX, double lookY, double lookZ) {
+        double dx = getChunkX(index) - chunkX;
+        double dy = getChunkY(index) - chunkY;
+        double dz = getChunkZ(index) - chunkZ;
+        double distanceSquared = dx * dx + dy * dy + dz * dz;
+        if (distanceSquared < 1e-6) {
+            return 0;
+        }
+        double cos = (dx * lookX + dy * lookY + dz * lookZ) / Math.sqrt(distanceSquared);
+        return distanceSquared * (1 - 0.5 * cos);
+    }
+
+    private void sendPendingChunks() {
+        int sentBytes = 0;
+        while (!pendingChunks.isEmpty() && sentBytes < MAX_BYTES_PER_TICK
+                && unacknowledgedChunks.get() < MAX_UNACKNOWLEDGED_CHUNKS) {
+            long index = pendingChunks.getLong(pendingChunks.size() - 1);
+            int x = getChunkX(index), y = getChunkY(index), z = getChunkZ(index);
+            Chunk chunk = chunkManager.getChunk(x, y, z).orElse(null);
+            if (chunk == null) {
+                if (loadingChunks.size() >= MAX_LOADING_CHUNKS) {
+                    break;
+                }
+                pendingChunks.removeLong(pendingChunks.size() - 1);
+                loadingChunks.add(index);
+                chunkManager.loadChunkAsync(x, y, z).whenComplete((loaded, error) -> {
+                    if (!loadingChunks.remove(index) || !isInView(index)) {
+                        return;
+                    }
+                    if (error == null) {
+                        // Put it back as the next chunk to send, it is sent once the budget allows
+                        failedLoads.remove(index);
+                        pendingChunks.add(index);
+                    } else {
+                        scheduleRetry(index);
+                    }
+                });
+                continue;
+            }
+
+            pendingChunks.removeLong(pendingChunks.size() - 1);
+            if (!(chunk instanceof CubicChunk)) {
+                continue;
+            }
+            PacketChunkData packet = new PacketChunkData((CubicChunk) chunk);
+            sentBytes += packet.getData().readableBytes();
+            player.getNetworkHandler().sendPacket(packet);
+            sentChunks.add(index);
+            unacknowledgedChunks.incrementAndGet();
+        }
+    }
+
+    private void scheduleRetry(long index) {
+        int attempts = failedLoads.get(index) + 1;
+        failedLoads.put(index, attempts);
+        // Once given up on, it is queued again when it comes back into view
+        if (attempts < MAX_LOAD_ATTEMPTS) {
+            retryDelays.put(index, RETRY_DELAY_TICKS << (attempts - 1));
+        }
+    }
+
+    private void tickRetries() {
+        if (retryDelays.isEmpty()) {
+            return;
+        }
+        ObjectIterator<Long2IntMap.Entry> iterator = Long2IntMaps.fastIterator(retryDelays);
+        while (iterator.hasNext()) {
+            Long2IntMap.Entry entry = iterator.next();
+            int delay = entry.getIntValue() - 1;
+            if (delay > 0) {
+                entry.setValue(delay);
+            } else {
+                iterator.remove();
+                pendingChunks.add(entry.getLongKey());
+            }
+        }
+    }
+
+    private boolean isInView(long index) {
+        return distanceSquared(getChunkX(index) - centerX, getChunkY(index) - centerY, getChunkZ(index) - centerZ) <= viewDistance * viewDistance;
+    }
+
+    private static int distanceSquared(int dx, int dy, int dz) {
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
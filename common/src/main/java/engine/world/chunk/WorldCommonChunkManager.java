@@ -1,44 +1,128 @@
 package engine.world.chunk;
 
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import engine.Platform;
 import engine.event.world.chunk.ChunkLoadEvent;
 import engine.event.world.chunk.ChunkUnloadEvent;
 import engine.logic.Tickable;
-import engine.math.Math2;
-import engine.math.SphereIterator;
 import engine.player.Player;
-import engine.server.network.packet.s2c.PacketChunkData;
-import engine.server.network.packet.s2c.PacketUnloadChunk;
+import engine.server.network.packet.Packet;
+import engine.server.network.packet.s2c.PacketMultiBlockUpdate;
+import engine.util.ConcurrentLongObjectMap;
+import engine.util.LazyObject;
 import engine.world.WorldCommon;
 import engine.world.chunk.storage.RegionBasedChunkStorage;
 import engine.world.gen.ChunkGenerator;
 import io.netty.util.collection.LongObjectHashMap;
 import io.netty.util.collection.LongObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortOpenHashSet;
+import it.unimi.dsi.fastutil.shorts.ShortSet;
 import org.apache.commons.lang3.Validate;
 import org.joml.Vector3dc;
-import org.joml.Vector3i;
 
-import java.util.Collection;
-import java.util.Optional;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.*;
 
-import static engine.world.chunk.ChunkConstants.getChunkIndex;
+import static engine.world.chunk.ChunkConstants.*;
 
 public class WorldCommonChunkManager implements ChunkManager, Tickable {
 
+    /**
+     * Shared by all worlds. One core is left for the server thread.
+     */
+    public static final LazyObject<ThreadPoolExecutor> CHUNK_LOAD_POOL = new LazyObject<>(() -> {
+        int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("Chunk Loader #%d").setDaemon(true).build());
+    });
+
+    /**
+     * Shared by all worlds. A single thread keeps the saves of a chunk in the order they were queued.
+     */
+    public static final LazyObject<ExecutorService> CHUNK_IO_POOL = new LazyObject<>(() ->
+            Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Chunk IO").setDaemon(true).build()));
+
+    /**
+     * Dirty chunks are saved every {@link #AUTOSAVE_INTERVAL} ticks, {@link #AUTOSAVE_CHUNKS_PER_TICK} chunks per tick.
+     */
+    public static final int AUTOSAVE_INTERVAL = 20 * 60 * 5;
+    private static final int AUTOSAVE_CHUNKS_PER_TICK = 32;
+
+    /**
+     * Chunks which have not been covered by any ticket for {@link #UNLOAD_DELAY} ticks are unloaded.
+     */
+    public static final int UNLOAD_DELAY = 20 * 30;
+    private static final int UNLOAD_CHECK_INTERVAL = 20;
+    private static final int SPAWN_TICKET_RADIUS = 2;
+
+    /**
+     * Chunks with more block changes than this within a tick are sent again as a whole.
+     */
+    public static final int FULL_CHUNK_RESEND_THRESHOLD = 512;
+
     private final WorldCommon world;
     private final ChunkStorage chunkStorage;
     private final ChunkGenerator generator;
 
-    private final LongObjectMap<Chunk> chunkMap;
+    /**
+     * Written by the server thread, read by any thread, e.g. the physics workers.
+     */
+    private final ConcurrentLongObjectMap<Chunk> chunkMap;
+    private final LongObjectMap<LoadTask> pendingLoads;
+    private final Queue<LoadTask> finishedLoads;
+
+    private final ChunkTicketManager ticketManager;
+    private ChunkTicket spawnTicket;
+    private final Map<Player, ChunkTicket> playerTickets = new ConcurrentHashMap<>();
+    private final Map<Player, PlayerChunkView> playerViews = new ConcurrentHashMap<>();
+    /**
+     * The positions of the blocks changed in each chunk since the last tick, packed relative to the chunk. Guarded by
+     * {@link #blockChangesLock}, which stays the same whilst the map is swapped.
+     */
+    private Long2ObjectMap<ShortSet> blockChanges = new Long2ObjectOpenHashMap<>();
+    private final Object blockChangesLock = new Object();
+    /**
+     * The game tick since when the chunk is not covered by any ticket.
+     */
+    private final Long2LongMap uncoveredSince = new Long2LongOpenHashMap();
+
+    /**
+     * Snapshots which have been queued for saving but not written yet. Loads read them instead of the storage, so that
+     * a chunk reloaded right after unloading never sees stale data.
+     */
+    private final Map<Long, CubicChunk> pendingSaves = new ConcurrentHashMap<>();
+    /**
+     * Snapshots whose save failed, handed back to the server thread by the chunk IO thread.
+     */
+    private final Queue<CubicChunk> failedSaves = new ConcurrentLinkedQueue<>();
+    /**
+     * Snapshots of unloaded chunks whose save failed, saved again by the next autosave. They stay in
+     * {@link #pendingSaves} meanwhile.
+     */
+    private final List<CubicChunk> unsavedSnapshots = new ArrayList<>();
+    private final Queue<Chunk> autosaveQueue = new ArrayDeque<>();
+    private CompletableFuture<Void> lastSave = CompletableFuture.completedFuture(null);
 
     private int viewDistance;
     private int viewDistanceSquared;
 
-    public WorldCommonChunkManager(WorldCommon world, ChunkGenerator generator) {
+    /**
+     * @param spawnCenter the center of the spawn chunks, which are kept loaded
+     */
+    public WorldCommonChunkManager(WorldCommon world, ChunkGenerator generator, ChunkPos spawnCenter) {
         this.world = world;
         this.chunkStorage = new RegionBasedChunkStorage(world, world.getStoragePath().resolve("chunk"));
-        this.chunkMap = new LongObjectHashMap<>();
+        this.chunkMap = new ConcurrentLongObjectMap<>();
+        this.pendingLoads = new LongObjectHashMap<>();
+        this.finishedLoads = new ConcurrentLinkedQueue<>();
         this.generator = generator;
+        this.ticketManager = new ChunkTicketManager();
+        this.spawnTicket = ticketManager.addTicket(ChunkTicket.Type.SPAWN, spawnCenter, SPAWN_TICKET_RADIUS, ChunkTicket.NEVER_EXPIRE);
         setViewDistance(12);
     }
 
@@ -49,6 +133,10 @@ public class WorldCommonChunkManager implements ChunkManager, Tickable {
 //                && player.getControlledEntity().getPosition().distanceSquared(new Vector3d(chunk.getMin().add(chunk.getMax(), new Vector3f()).div(2))) > viewDistanceSquared;
 //    }
 
+    public WorldCommon getWorld() {
+        return world;
+    }
+
     public int getViewDistance() {
         return viewDistance;
     }
@@ -56,25 +144,146 @@ public class WorldCommonChunkManager implements ChunkManager, Tickable {
     public void setViewDistance(int viewDistance) {
         this.viewDistance = viewDistance;
         this.viewDistanceSquared = viewDistance * viewDistance;
+        List.copyOf(playerTickets.keySet()).forEach(this::updatePlayerTicket);
+    }
+
+    public ChunkTicketManager getTicketManager() {
+        return ticketManager;
+    }
+
+    /**
+     * Keep the chunks within the radius of the center loaded until the ticket is removed.
+     */
+    public ChunkTicket addTicket(ChunkPos center, int radius) {
+        return ticketManager.addTicket(ChunkTicket.Type.PLUGIN, center, radius, ChunkTicket.NEVER_EXPIRE);
+    }
+
+    /**
+     * Keep the chunks within the radius of the center loaded for the specified number of ticks.
+     */
+    public ChunkTicket addTicket(ChunkPos center, int radius, int ticks) {
+        return ticketManager.addTicket(ChunkTicket.Type.PLUGIN, center, radius, world.getGameTick() + ticks);
+    }
+
+    public void removeTicket(ChunkTicket ticket) {
+        ticketManager.removeTicket(ticket);
+    }
+
+    /**
+     * Move the spawn chunks, e.g. when the spawn point of the world is changed.
+     */
+    public void setSpawnCenter(ChunkPos center) {
+        ChunkTicket oldTicket = spawnTicket;
+        if (oldTicket.getCenter().equals(center)) {
+            return;
+        }
+        spawnTicket = ticketManager.addTicket(ChunkTicket.Type.SPAWN, center, SPAWN_TICKET_RADIUS, ChunkTicket.NEVER_EXPIRE);
+        ticketManager.removeTicket(oldTicket);
+    }
+
+    private void updatePlayerTicket(Player player) {
+        ChunkTicket oldTicket = playerTickets.remove(player);
+        if (player.isControllingEntity() && player.getWorld() == world) {
+            var center = ChunkPos.fromWorldPos(player.getControlledEntity().getPosition());
+            // Add the new ticket before removing the old one, so the ticket counts of the shared area never drop to zero
+            playerTickets.put(player, ticketManager.addTicket(ChunkTicket.Type.PLAYER, center, viewDistance, ChunkTicket.NEVER_EXPIRE));
+        }
+        if (oldTicket != null) {
+            ticketManager.removeTicket(oldTicket);
+        }
     }
 
     @Override
     public Optional<Chunk> getChunk(int x, int y, int z) {
-        long chunkIndex = getChunkIndex(x, y, z);
-        return Optional.ofNullable(chunkMap.get(chunkIndex));
+        return Optional.ofNullable(getLoadedChunk(x, y, z));
+    }
+
+    /**
+     * Get the chunk if it is loaded, without loading it.
+     */
+    @Nullable
+    public Chunk getLoadedChunk(int x, int y, int z) {
+        return chunkMap.get(getChunkIndex(x, y, z));
     }
 
+    /**
+     * Get the chunk, loading it on the calling thread if it is not loaded yet. If the chunk is being loaded
+     * asynchronously, waits for that load instead of starting another one.
+     */
     @Override
     public Chunk getOrLoadChunk(int x, int y, int z) {
         long index = getChunkIndex(x, y, z);
-        return chunkMap.computeIfAbsent(index, key -> loadChunk(index, x, y, z));
+        Chunk chunk = chunkMap.get(index);
+        if (chunk != null) {
+            return chunk;
+        }
+
+        LoadTask task = pendingLoads.get(index);
+        if (task == null) {
+            return finishLoad(index, loadChunk(x, y, z));
+        }
+
+        if (CHUNK_LOAD_POOL.get().remove(task)) {
+            task.run();
+        } else {
+            task.awaitDone();
+        }
+        finishLoad(task);
+        return task.future.join();
+    }
+
+    /**
+     * Load the chunk on the chunk loader threads. Chunks closer to players are loaded first.
+     * <p>
+     * The returned future is completed on the server thread, so it is safe to access the world in its callbacks.
+     */
+    public CompletableFuture<Chunk> loadChunkAsync(int x, int y, int z) {
+        long index = getChunkIndex(x, y, z);
+        Chunk chunk = chunkMap.get(index);
+        if (chunk != null) {
+            return CompletableFuture.completedFuture(chunk);
+        }
+
+        if (y < 0) {
+            return CompletableFuture.completedFuture(finishLoad(index, loadChunk(x, y, z)));
+        }
+
+        LoadTask task = pendingLoads.get(index);
+        if (task == null) {
+            task = new LoadTask(index, x, y, z, getLoadPriority(x, y, z));
+            pendingLoads.put(index, task);
+            CHUNK_LOAD_POOL.get().execute(task);
+        }
+        return task.future;
+    }
+
+    public CompletableFuture<Chunk> loadChunkAsync(ChunkPos pos) {
+        return loadChunkAsync(pos.x(), pos.y(), pos.z());
+    }
+
+    private double getLoadPriority(int x, int y, int z) {
+        double minDistanceSquared = Double.MAX_VALUE;
+        for (Player player : world.getGame().getPlayers()) {
+            if (!player.isControllingEntity() || player.getWorld() != world) {
+                continue;
+            }
+            var position = player.getControlledEntity().getPosition();
+            double dx = x - position.x() / CHUNK_X_SIZE;
+            double dy = y - position.y() / CHUNK_Y_SIZE;
+            double dz = z - position.z() / CHUNK_Z_SIZE;
+            minDistanceSquared = Math.min(minDistanceSquared, dx * dx + dy * dy + dz * dz);
+        }
+        return minDistanceSquared;
     }
 
     private boolean shouldChunkOnline(int x, int y, int z, ChunkPos pos) {
         return pos.distanceSquared(x, 0, z) <= viewDistanceSquared;
     }
 
-    private synchronized Chunk loadChunk(long index, int x, int y, int z) {
+    /**
+     * Read or generate the chunk. May be called from any thread, it does not touch the state of the chunk manager.
+     */
+    private Chunk loadChunk(int x, int y, int z) {
         if (y < 0) { //Not buildable below 0
             return new AirChunk(world, x, y, z);
         }
@@ -84,41 +293,191 @@ public class WorldCommonChunkManager implements ChunkManager, Tickable {
 //            return chunk;
 //        }
 
+        CubicChunk pendingSave = pendingSaves.get(getChunkIndex(x, y, z));
+        if (pendingSave != null) {
+            return pendingSave.snapshot();
+        }
+
         Chunk chunk = chunkStorage.load(x, y, z);
         if (chunk == null) { //Chunk has not been created
             chunk = new CubicChunk(world, x, y, z);
             generator.generate(chunk);
         }
+        return chunk;
+    }
+
+    private Chunk finishLoad(long index, Chunk chunk) {
         chunkMap.put(index, chunk);
         world.getGame().getEventBus().post(new ChunkLoadEvent(chunk));
         return chunk;
     }
 
+    private void finishLoad(LoadTask task) {
+        if (task.future.isDone()) {
+            return;
+        }
+
+        pendingLoads.remove(task.index);
+        if (task.error != null) {
+            Platform.getLogger().error(String.format("Failed to load chunk at %d, %d, %d", task.x, task.y, task.z), task.error);
+            task.future.completeExceptionally(task.error);
+            return;
+        }
+        task.future.complete(finishLoad(task.index, task.chunk));
+    }
+
+    private void cancelPendingLoads() {
+        ThreadPoolExecutor executor = CHUNK_LOAD_POOL.get();
+        for (LoadTask task : List.copyOf(pendingLoads.values())) {
+            if (!executor.remove(task)) {
+                task.awaitDone();
+            }
+            task.future.cancel(false);
+        }
+        pendingLoads.clear();
+        finishedLoads.clear();
+    }
+
     @Override
     public void unloadChunk(Chunk chunk) {
         long index = getChunkIndex(chunk.getX(), chunk.getY(), chunk.getZ());
-        if (!chunkMap.containsKey(index))
+        if (chunkMap.remove(index) == null)
             return;
+        uncoveredSince.remove(index);
+        saveAsync(snapshotDirtyChunks(List.of(chunk)));
         unloadChunk(index, chunk);
-        chunkMap.remove(index);
     }
 
-    private synchronized void unloadChunk(long index, Chunk chunk) {
+    private void unloadUncoveredChunks() {
+        long gameTick = world.getGameTick();
+        List<Chunk> chunksToUnload = new ArrayList<>();
+        chunkMap.forEach((index, chunk) -> {
+            if (ticketManager.hasTicket(index)) {
+                uncoveredSince.remove(index);
+                return;
+            }
+
+            if (!uncoveredSince.containsKey(index)) {
+                uncoveredSince.put(index, gameTick);
+            } else if (gameTick - uncoveredSince.get(index) >= UNLOAD_DELAY) {
+                chunksToUnload.add(chunk);
+            }
+        });
+        chunksToUnload.forEach(this::unloadChunk);
+    }
+
+    private void unloadChunk(long index, Chunk chunk) {
         Validate.notNull(chunk);
-        chunkStorage.save(chunk);
         world.getGame().getEventBus().post(new ChunkUnloadEvent(chunk));
+        if (chunk instanceof CubicChunk) {
+            ((CubicChunk) chunk).releaseEncodedData();
+        }
     }
 
     @Override
     public void unloadAll() {
+        cancelPendingLoads();
+        handleFailedSaves();
+        retryUnsavedSnapshots();
+        saveAsync(snapshotDirtyChunks(chunkMap.values()));
         chunkMap.forEach(this::unloadChunk);
         chunkMap.clear();
+        uncoveredSince.clear();
+        autosaveQueue.clear();
+        lastSave.join();
         chunkStorage.close();
     }
 
+    /**
+     * Queue all dirty chunks to be saved on the chunk IO thread. Returns without waiting for the saves.
+     */
     @Override
     public void saveAll() {
-        chunkMap.values().forEach(chunkStorage::save);
+        handleFailedSaves();
+        retryUnsavedSnapshots();
+        saveAsync(snapshotDirtyChunks(chunkMap.values()));
+    }
+
+    /**
+     * Snapshot the dirty chunks and mark them as saved. Must be called on the server thread.
+     */
+    private List<CubicChunk> snapshotDirtyChunks(Collection<Chunk> chunks) {
+        List<CubicChunk> snapshots = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk instanceof CubicChunk && ((CubicChunk) chunk).isDirty()) {
+                ((CubicChunk) chunk).setDirty(false);
+                snapshots.add(((CubicChunk) chunk).snapshot());
+            }
+        }
+        return snapshots;
+    }
+
+    private void saveAsync(List<CubicChunk> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        for (CubicChunk snapshot : snapshots) {
+            pendingSaves.put(getChunkIndex(snapshot.getX(), snapshot.getY(), snapshot.getZ()), snapshot);
+        }
+        lastSave = CompletableFuture.runAsync(() -> {
+            try {
+                chunkStorage.saveAll(snapshots);
+            } catch (Exception e) {
+                Platform.getLogger().error(String.format("Failed to save %d chunks of world %s", snapshots.size(), world.getName()), e);
+                // Kept in the pending saves, so that a reload still sees the changes
+                failedSaves.addAll(snapshots);
+                return;
+            }
+            for (CubicChunk snapshot : snapshots) {
+                pendingSaves.remove(getChunkIndex(snapshot.getX(), snapshot.getY(), snapshot.getZ()), snapshot);
+            }
+        }, CHUNK_IO_POOL.get());
+    }
+
+    /**
+     * Mark the loaded chunks whose save failed dirty again, so that the next autosave saves them, and keep the snapshots
+     * of the unloaded ones for it.
+     */
+    private void handleFailedSaves() {
+        CubicChunk snapshot;
+        while ((snapshot = failedSaves.poll()) != null) {
+            long index = getChunkIndex(snapshot.getX(), snapshot.getY(), snapshot.getZ());
+            Chunk chunk = chunkMap.get(index);
+            if (chunk instanceof CubicChunk) {
+                ((CubicChunk) chunk).setDirty(true);
+                pendingSaves.remove(index, snapshot);
+            } else {
+                unsavedSnapshots.add(snapshot);
+            }
+        }
+    }
+
+    private void retryUnsavedSnapshots() {
+        if (!unsavedSnapshots.isEmpty()) {
+            saveAsync(List.copyOf(unsavedSnapshots));
+            unsavedSnapshots.clear();
+        }
+    }
+
+    private void tickAutosave() {
+        handleFailedSaves();
+        if (world.getGameTick() % AUTOSAVE_INTERVAL == 0 && autosaveQueue.isEmpty()) {
+            retryUnsavedSnapshots();
+            autosaveQueue.addAll(chunkMap.values());
+        }
+        if (autosaveQueue.isEmpty()) {
+            return;
+        }
+
+        List<Chunk> slice = new ArrayList<>(AUTOSAVE_CHUNKS_PER_TICK);
+        Chunk chunk;
+        while (slice.size() < AUTOSAVE_CHUNKS_PER_TICK && (chunk = autosaveQueue.poll()) != null) {
+            if (chunk instanceof CubicChunk && ((CubicChunk) chunk).isDirty()) {
+                slice.add(chunk);
+            }
+        }
+        saveAsync(snapshotDirtyChunks(slice));
     }
 
     @Override
@@ -130,72 +489,161 @@ public class WorldCommonChunkManager implements ChunkManager, Tickable {
         return generator;
     }
 
+    /**
+     * Start streaming the chunks around the player to its client. The chunks are sent over the following ticks.
+     */
     public void handlePlayerJoin(Player player) {
         if (!player.isControllingEntity()) return; // We cannot do anything if the player does not control an entity
-        var position = ChunkPos.fromWorldPos(player.getControlledEntity().getPosition());
-        var x = position.x();
-        var y = position.y();
-        var z = position.z();
-
-        // First: send the nearby 27 chunks to the client
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                for (int k = -1; k <= 1; k++) {
-                    this.sendChunkData(player, x + i, y + j, z + k);
-                }
-            }
-        }
-
-        // Then: send all the remaining chunks
-        int dx = 0;
-        for (int i = 0; -viewDistance <= (dx += Math2.alternativeSignNaturalNumber(i)) && dx <= viewDistance; i++) {
-            var zBoundSquared = viewDistanceSquared - dx * dx;
-            var zBound = (int) Math.sqrt(zBoundSquared);
-            int dz = 0;
-            for (int k = 0; -zBound <= (dz += Math2.alternativeSignNaturalNumber(k)) && dz <= zBound; k++) {
-                var yBoundSquared = zBoundSquared - dz * dz;
-                var yBound = (int) Math.sqrt(yBoundSquared);
-                int dy = 0;
-                for (int j = 0; -yBound <= (dy += Math2.alternativeSignNaturalNumber(j)) && dy <= yBound; j++) {
-                    if (Math.max(Math.max(Math.abs(dx), Math.abs(dy)), Math.abs(dz)) <= 1) {
-                        // This chunk has already sent at the first step
-                        continue;
-                    }
-                    this.sendChunkData(player, x + dx, y + dy, z + dz);
-                }
-            }
-        }
+        updatePlayerTicket(player);
+        playerViews.put(player, new PlayerChunkView(this, player));
     }
 
+    /**
+     * Only updates the ticket of the player, the chunks sent to the client are updated on the next tick.
+     */
     public void handlePlayerMove(Player player, Vector3dc prevPos) {
         if (!player.isControllingEntity()) return; // We cannot do anything if the player does not control an entity
         var chunkPos = ChunkPos.fromWorldPos(player.getControlledEntity().getPosition());
         var prevChunkPos = ChunkPos.fromWorldPos(prevPos);
-        var newArea = Sets.newHashSet(SphereIterator.getCoordinatesWithinSphere(viewDistance, chunkPos));
-        var oldArea = Sets.newHashSet(SphereIterator.getCoordinatesWithinSphere(viewDistance, prevChunkPos));
-        // The following terms "unload" and "load" is in client's view but not server's view
-        for (Vector3i shouldUnload : Sets.difference(oldArea, newArea)) {
-            sendUnloadNotice(player, shouldUnload.x, shouldUnload.y, shouldUnload.z);
+        if (!chunkPos.equals(prevChunkPos)) {
+            updatePlayerTicket(player);
+        }
+    }
+
+    public void handlePlayerLeave(Player player) {
+        playerViews.remove(player);
+        ChunkTicket ticket = playerTickets.remove(player);
+        if (ticket != null) {
+            ticketManager.removeTicket(ticket);
         }
-        for (Vector3i shouldLoad : Sets.difference(newArea, oldArea)) {
-            sendChunkData(player, shouldLoad.x, shouldLoad.y, shouldLoad.z);
+    }
+
+    /**
+     * Record a block change, which is sent to the players who have the chunk on the next tick. Multiple changes of a
+     * chunk within a tick are sent together.
+     */
+    public void handleBlockChange(Chunk chunk, int x, int y, int z) {
+        long index = getChunkIndex(chunk);
+        short position = PacketMultiBlockUpdate.packPosition(x, y, z);
+        synchronized (blockChangesLock) {
+            ShortSet positions = blockChanges.get(index);
+            if (positions == null) {
+                positions = new ShortOpenHashSet();
+                blockChanges.put(index, positions);
+            }
+            positions.add(position);
         }
     }
 
-    private void sendUnloadNotice(Player player, int x, int y, int z) {
-        player.getNetworkHandler().sendPacket(new PacketUnloadChunk(world.getName(), x, y, z));
+    private void sendBlockChanges() {
+        Long2ObjectMap<ShortSet> changes;
+        synchronized (blockChangesLock) {
+            if (blockChanges.isEmpty()) {
+                return;
+            }
+            changes = blockChanges;
+            blockChanges = new Long2ObjectOpenHashMap<>();
+        }
+
+        for (Long2ObjectMap.Entry<ShortSet> entry : changes.long2ObjectEntrySet()) {
+            long index = entry.getLongKey();
+            Chunk chunk = chunkMap.get(index);
+            if (!(chunk instanceof CubicChunk)) {
+                continue;
+            }
+
+            ShortSet positions = entry.getValue();
+            Packet packet = positions.size() > FULL_CHUNK_RESEND_THRESHOLD ? null : new PacketMultiBlockUpdate(chunk, positions);
+            for (PlayerChunkView view : playerViews.values()) {
+                if (!view.hasSent(index)) {
+                    continue;
+                }
+                if (packet != null) {
+                    view.sendPacket(packet);
+                } else {
+                    view.resendChunk((CubicChunk) chunk);
+                }
+            }
+        }
     }
 
-    private void sendChunkData(Player player, int x, int y, int z) {
-        var chunk = getOrLoadChunk(x, y, z);
-        if (chunk instanceof CubicChunk)
-            player.getNetworkHandler().sendPacket(new PacketChunkData(((CubicChunk) chunk)));
-//        getChunk(x, y, z).filter(chunk -> chunk instanceof CubicChunk)
-//                .ifPresent(chunk -> player.getNetworkHandler().sendPacket(new PacketChunkData((CubicChunk) chunk)));
+    /**
+     * Called when the client of the player acknowledges that it has processed chunk data.
+     */
+    public void handleChunkAck(Player player, int count) {
+        PlayerChunkView view = playerViews.get(player);
+        if (view != null) {
+            view.acknowledge(count);
+        }
     }
 
     @Override
     public void tick() {
+        LoadTask task;
+        while ((task = finishedLoads.poll()) != null) {
+            finishLoad(task);
+        }
+
+        sendBlockChanges();
+        for (PlayerChunkView view : playerViews.values()) {
+            view.tick(viewDistance);
+        }
+
+        ticketManager.removeExpiredTickets(world.getGameTick());
+        if (world.getGameTick() % UNLOAD_CHECK_INTERVAL == 0) {
+            unloadUncoveredChunks();
+        }
+        tickAutosave();
+    }
+
+    private final class LoadTask implements Runnable, Comparable<LoadTask> {
 
+        private final long index;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final double priority;
+
+        /**
+         * Completed on the server thread once the chunk has been put into the chunk map.
+         */
+        private final CompletableFuture<Chunk> future = new CompletableFuture<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile Chunk chunk;
+        private volatile Throwable error;
+
+        private LoadTask(long index, int x, int y, int z, double priority) {
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.priority = priority;
+        }
+
+        @Override
+        public void run() {
+            try {
+                chunk = loadChunk(x, y, z);
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                done.countDown();
+            }
+            finishedLoads.add(this);
+        }
+
+        private void awaitDone() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int compareTo(LoadTask o) {
+            return Double.compare(priority, o.priority);
+        }
     }
 }
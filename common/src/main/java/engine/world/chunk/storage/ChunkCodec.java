@@ -0,0 +1,25 @@
+package engine.world.chunk.storage;
+
+import java.io.IOException;
+
+/**
+ * Encodes the serialized data of a chunk before it is written to a region file.
+ * <p>
+ * The id of the codec is stored along with the chunk in the region file header, so it must be unique and never change
+ * once data has been written with it.
+ *
+ * @see ChunkCodecs
+ */
+public interface ChunkCodec {
+
+    /**
+     * @return the id of this codec, in range [0, 255]
+     */
+    int getId();
+
+    String getName();
+
+    byte[] encode(byte[] data, int offset, int length) throws IOException;
+
+    byte[] decode(byte[] data, int offset, int length) throws IOException;
+}
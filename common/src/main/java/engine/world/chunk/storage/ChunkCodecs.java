@@ -0,0 +1,154 @@
+package engine.world.chunk.storage;
+
+import engine.world.chunk.CubicChunk;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.zip.*;
+
+/**
+ * The chunk codecs by id, with the built-in ones registered.
+ */
+public final class ChunkCodecs {
+
+    /**
+     * Stores the data as is. Region files written before codecs were introduced are read with this codec.
+     */
+    public static final ChunkCodec RAW = new ChunkCodec() {
+        @Override
+        public int getId() {
+            return 0;
+        }
+
+        @Override
+        public String getName() {
+            return "raw";
+        }
+
+        @Override
+        public byte[] encode(byte[] data, int offset, int length) {
+            return Arrays.copyOfRange(data, offset, offset + length);
+        }
+
+        @Override
+        public byte[] decode(byte[] data, int offset, int length) {
+            return Arrays.copyOfRange(data, offset, offset + length);
+        }
+    };
+
+    /**
+     * Run-length encoding of the block ids of the chunk. The data is parsed as written by
+     * {@link CubicChunk#write(DataOutput)} and encoded by {@link CubicChunk#writeRuns(DataOutput)}, which stores the
+     * block ids in position order as runs of equal ids, so that the large areas of one block cost a few bytes whatever
+     * the bits per entry of the palette.
+     */
+    public static final ChunkCodec RLE = new ChunkCodec() {
+        @Override
+        public int getId() {
+            return 1;
+        }
+
+        @Override
+        public String getName() {
+            return "rle";
+        }
+
+        @Override
+        public byte[] encode(byte[] data, int offset, int length) throws IOException {
+            CubicChunk chunk = new CubicChunk(null, 0, 0, 0);
+            chunk.read(new DataInputStream(new ByteArrayInputStream(data, offset, length)));
+            ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+            chunk.writeRuns(new DataOutputStream(output));
+            return output.toByteArray();
+        }
+
+        @Override
+        public byte[] decode(byte[] data, int offset, int length) throws IOException {
+            CubicChunk chunk = new CubicChunk(null, 0, 0, 0);
+            chunk.readRuns(new DataInputStream(new ByteArrayInputStream(data, offset, length)));
+            ByteArrayOutputStream output = new ByteArrayOutputStream(length * 4);
+            chunk.write(new DataOutputStream(output));
+            return output.toByteArray();
+        }
+    };
+
+    /**
+     * Deflate compression from the JDK, tuned for speed.
+     */
+    public static final ChunkCodec DEFLATE = new ChunkCodec() {
+        @Override
+        public int getId() {
+            return 2;
+        }
+
+        @Override
+        public String getName() {
+            return "deflate";
+        }
+
+        @Override
+        public byte[] encode(byte[] data, int offset, int length) throws IOException {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(length / 8 + 64);
+                try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(output, deflater)) {
+                    deflaterOutput.write(data, offset, length);
+                }
+                return output.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public byte[] decode(byte[] data, int offset, int length) throws IOException {
+            Inflater inflater = new Inflater();
+            try (InputStream input = new InflaterInputStream(new ByteArrayInputStream(data, offset, length), inflater)) {
+                return input.readAllBytes();
+            } finally {
+                inflater.end();
+            }
+        }
+    };
+
+    /**
+     * The codecs by id, replaced as a whole when a codec is registered.
+     */
+    private static volatile ChunkCodec[] codecs = new ChunkCodec[256];
+
+    static {
+        register(RAW);
+        register(RLE);
+        register(DEFLATE);
+    }
+
+    /**
+     * Register a codec, so that the chunks encoded with it can be read back.
+     *
+     * @throws IllegalArgumentException if the id is out of range or taken by another codec
+     */
+    public static synchronized void register(ChunkCodec codec) {
+        int id = codec.getId();
+        if (id < 0 || id >= codecs.length) {
+            throw new IllegalArgumentException("Chunk codec id out of range: " + id);
+        }
+        ChunkCodec registered = codecs[id];
+        if (registered != null && registered != codec) {
+            throw new IllegalArgumentException("Chunk codec id " + id + " is taken by " + registered.getName());
+        }
+        ChunkCodec[] newCodecs = codecs.clone();
+        newCodecs[id] = codec;
+        codecs = newCodecs;
+    }
+
+    /**
+     * @return the codec with the id, or null if no codec has the id
+     */
+    public static ChunkCodec get(int id) {
+        ChunkCodec[] codecs = ChunkCodecs.codecs;
+        return id >= 0 && id < codecs.length ? codecs[id] : null;
+    }
+
+    private ChunkCodecs() {
+    }
+}
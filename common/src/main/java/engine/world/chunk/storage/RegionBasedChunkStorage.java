@@ -1,7 +1,5 @@
 package engine.world.chunk.storage;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import engine.util.Files2;
 import engine.world.World;
 import engine.world.chunk.Chunk;
@@ -9,32 +7,40 @@ import engine.world.chunk.ChunkStorage;
 import engine.world.chunk.CubicChunk;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.*;
 
-import static engine.world.chunk.storage.RegionConstants.getRegionIndex;
-import static engine.world.chunk.storage.RegionConstants.toRegionCoordinate;
+import static engine.world.chunk.storage.RegionConstants.*;
 
 public class RegionBasedChunkStorage implements ChunkStorage {
 
     private final World world;
     private final Path storagePath;
+    private final ChunkCodec codec;
 
-    private final Cache<Long, RegionFile> regionFileCache;
+    private static final int MAX_OPEN_REGION_FILES = 256;
 
-    private boolean closed = false;
+    /**
+     * The open region files in least recently used order. A file is only closed once no thread uses it, so that an
+     * eviction never closes the file under a loader or the saver, and never opens a second instance of a file in use.
+     */
+    private final LinkedHashMap<Long, OpenRegionFile> regionFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    private volatile boolean closed = false;
 
     public RegionBasedChunkStorage(World world, Path storagePath) {
+        this(world, storagePath, ChunkCodecs.DEFLATE);
+    }
+
+    /**
+     * @param codec the codec used to encode chunks written to the region files
+     */
+    public RegionBasedChunkStorage(World world, Path storagePath, ChunkCodec codec) {
         this.world = world;
         this.storagePath = storagePath;
+        this.codec = codec;
         Files2.createDirectories(storagePath);
-        regionFileCache = CacheBuilder.newBuilder().maximumSize(256).concurrencyLevel(8)
-                .removalListener(notification -> {
-                    try {
-                        ((RegionFile) notification.getValue()).close();
-                    } catch (IOException ignored) {
-                    }
-                }).build();
     }
 
     @Override
@@ -48,15 +54,10 @@ public class RegionBasedChunkStorage implements ChunkStorage {
             throw new IllegalStateException("Chunk storage has been closed");
         }
 
-        long regionIndex = getRegionIndex(chunkX, chunkY, chunkZ);
+        OpenRegionFile regionFile = null;
         try {
-            byte[] data = regionFileCache.get(regionIndex, () -> {
-                Path regionFile = storagePath.resolve(getCorrespondingRegionFileName(chunkX, chunkY, chunkZ));
-                if (!Files.exists(regionFile)) {
-                    Files.createFile(regionFile);
-                }
-                return new RegionFile(regionFile.toFile());
-            }).read(chunkX, chunkY, chunkZ);
+            regionFile = acquireRegionFile(chunkX, chunkY, chunkZ);
+            byte[] data = regionFile.file.read(chunkX, chunkY, chunkZ);
             if (data == null) {
                 return null;
             }
@@ -68,6 +69,8 @@ public class RegionBasedChunkStorage implements ChunkStorage {
             throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            releaseRegionFile(regionFile);
         }
     }
 
@@ -85,17 +88,56 @@ public class RegionBasedChunkStorage implements ChunkStorage {
             return;
         }
 
-        long regionIndex = getRegionIndex(chunk.getX(), chunk.getY(), chunk.getZ());
+        OpenRegionFile regionFile = null;
         try {
             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            ((CubicChunk) chunk).write(new DataOutputStream(byteArrayOutputStream));
-            regionFileCache.get(regionIndex, () -> {
-                Path regionFile = storagePath.resolve(getCorrespondingRegionFileName(chunk.getX(), chunk.getY(), chunk.getZ()));
-                if (!Files.exists(regionFile)) {
-                    Files.createFile(regionFile);
+            ((CubicChunk) chunk).writeCompacted(new DataOutputStream(byteArrayOutputStream));
+            regionFile = acquireRegionFile(chunk.getX(), chunk.getY(), chunk.getZ());
+            regionFile.file.write(chunk.getX(), chunk.getY(), chunk.getZ(), byteArrayOutputStream.toByteArray(), byteArrayOutputStream.size());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            releaseRegionFile(regionFile);
+        }
+    }
+
+    /**
+     * Save the chunks grouped by region, so that each region file is written in one pass.
+     */
+    @Override
+    public void saveAll(Collection<? extends Chunk> chunks) {
+        if (closed) {
+            throw new IllegalStateException("Chunk storage has been closed");
+        }
+
+        Map<Long, Map<Integer, ByteBuffer>> regions = new HashMap<>();
+        Map<Long, Chunk> regionChunks = new HashMap<>();
+        try {
+            for (Chunk chunk : chunks) {
+                if (!(chunk instanceof CubicChunk)) {
+                    continue;
+                }
+
+                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                ((CubicChunk) chunk).writeCompacted(new DataOutputStream(byteArrayOutputStream));
+                long regionIndex = getRegionIndex(chunk.getX(), chunk.getY(), chunk.getZ());
+                regions.computeIfAbsent(regionIndex, key -> new HashMap<>())
+                        .put(getChunkIndexInRegion(chunk.getX(), chunk.getY(), chunk.getZ()),
+                                ByteBuffer.wrap(byteArrayOutputStream.toByteArray(), 0, byteArrayOutputStream.size()));
+                regionChunks.putIfAbsent(regionIndex, chunk);
+            }
+
+            for (Map.Entry<Long, Map<Integer, ByteBuffer>> entry : regions.entrySet()) {
+                Chunk chunk = regionChunks.get(entry.getKey());
+                OpenRegionFile regionFile = acquireRegionFile(chunk.getX(), chunk.getY(), chunk.getZ());
+                try {
+                    regionFile.file.writeAll(entry.getValue());
+                } finally {
+                    releaseRegionFile(regionFile);
                 }
-                return new RegionFile(regionFile.toFile());
-            }).write(chunk.getX(), chunk.getY(), chunk.getZ(), byteArrayOutputStream.toByteArray(), byteArrayOutputStream.size());
+            }
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -103,18 +145,84 @@ public class RegionBasedChunkStorage implements ChunkStorage {
         }
     }
 
+    /**
+     * Open the region file of the chunk if needed and mark it used until {@link #releaseRegionFile(OpenRegionFile)}.
+     */
+    private OpenRegionFile acquireRegionFile(int chunkX, int chunkY, int chunkZ) throws IOException {
+        long regionIndex = getRegionIndex(chunkX, chunkY, chunkZ);
+        synchronized (regionFiles) {
+            if (closed) {
+                throw new IllegalStateException("Chunk storage has been closed");
+            }
+            OpenRegionFile regionFile = regionFiles.get(regionIndex);
+            if (regionFile == null) {
+                Path path = storagePath.resolve(getCorrespondingRegionFileName(chunkX, chunkY, chunkZ));
+                regionFile = new OpenRegionFile(new RegionFile(path.toFile(), codec));
+                regionFiles.put(regionIndex, regionFile);
+            }
+            regionFile.users++;
+            closeIdleRegionFiles();
+            return regionFile;
+        }
+    }
+
+    private void releaseRegionFile(OpenRegionFile regionFile) {
+        if (regionFile == null) {
+            return;
+        }
+        synchronized (regionFiles) {
+            regionFile.users--;
+            closeIdleRegionFiles();
+        }
+    }
+
+    /**
+     * Close the least recently used files which are not in use until no more than {@link #MAX_OPEN_REGION_FILES} are
+     * open. More may stay open whilst they are in use.
+     */
+    private void closeIdleRegionFiles() {
+        if (regionFiles.size() <= MAX_OPEN_REGION_FILES) {
+            return;
+        }
+        for (Iterator<OpenRegionFile> iterator = regionFiles.values().iterator();
+             iterator.hasNext() && regionFiles.size() > MAX_OPEN_REGION_FILES; ) {
+            OpenRegionFile regionFile = iterator.next();
+            if (regionFile.users == 0) {
+                iterator.remove();
+                closeQuietly(regionFile.file);
+            }
+        }
+    }
+
+    private static void closeQuietly(RegionFile file) {
+        try {
+            file.close();
+        } catch (IOException ignored) {
+        }
+    }
+
     @Override
     public void close() {
         if (closed) {
             return;
         }
 
-        closed = true;
-        regionFileCache.asMap().forEach((key, value) -> {
-            try {
-                value.close();
-            } catch (IOException ignored) {
-            }
-        });
+        synchronized (regionFiles) {
+            closed = true;
+            regionFiles.values().forEach(regionFile -> closeQuietly(regionFile.file));
+            regionFiles.clear();
+        }
+    }
+
+    private static final class OpenRegionFile {
+        private final RegionFile file;
+        /**
+         * The count of threads using the file. Guarded by {@link #regionFiles}.
+         */
+        private int users;
+
+        private OpenRegionFile(RegionFile file) {
+            this.file = file;
+        }
     }
 }
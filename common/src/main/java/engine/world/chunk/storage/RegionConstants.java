@@ -22,6 +22,10 @@ public interface RegionConstants {
                 toUnsigned(chunkZ >> REGION_Z_BITS);
     }
 
+    static int getChunkIndexInRegion(int chunkX, int chunkY, int chunkZ) {
+        return (chunkX & REGION_MAX_X) | ((chunkY & REGION_MAX_Y) << REGION_X_BITS) | ((chunkZ & REGION_MAX_Z) << (REGION_X_BITS + REGION_Y_BITS));
+    }
+
     static int toRegionCoordinate(int coord) {
         return coord >> REGION_X_BITS; // Assumption: the bit offset of all axis are the same
     }
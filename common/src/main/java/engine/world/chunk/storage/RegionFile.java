@@ -3,13 +3,23 @@ package engine.world.chunk.storage;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 
 import static engine.world.chunk.storage.RegionConstants.*;
 
+/**
+ * The region file stores the chunks of a region in sectors of 4 KiB.
+ * <p>
+ * The header holds the start sector of each chunk in the lower 24 bits and the id of its {@link ChunkCodec} in the upper
+ * 8 bits, or -1 if the chunk is absent, and is memory-mapped so that updating it costs no system call. Each chunk starts
+ * with its encoded data length, followed by the encoded data. Files written before codecs were introduced have a codec
+ * id of 0 everywhere, which is {@link ChunkCodecs#RAW}.
+ */
 @ThreadSafe
 public class RegionFile implements AutoCloseable {
 
@@ -18,169 +28,285 @@ public class RegionFile implements AutoCloseable {
     private static final int SECTOR_MAX_INDEX = SECTOR_SIZE - 1;
     private static final int REGION_HEADER_SIZE = REGION_SIZE * Integer.BYTES;
     private static final int CHUNK_HEADER_SIZE = Integer.BYTES;
+    private static final int START_SECTOR_MASK = 0xffffff;
+    private static final int CODEC_SHIFT = 24;
 
-    private final RandomAccessFile file;
-    private final int[] chunkStartSectors;
-    private final List<Boolean> usedSectors;
+    private static final ByteBuffer PADDING = ByteBuffer.allocateDirect(SECTOR_SIZE).asReadOnlyBuffer();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int[] chunkSectorCounts;
+    private final BitSet usedSectors;
+    private final ChunkCodec codec;
+    private boolean closed;
 
     public RegionFile(File file) throws IOException {
-        this.file = new RandomAccessFile(file, "rw");
-        this.chunkStartSectors = new int[REGION_SIZE];
-        Arrays.fill(chunkStartSectors, -1);
+        this(file, ChunkCodecs.DEFLATE);
+    }
 
-        if (this.file.length() < REGION_HEADER_SIZE) { // Initialize empty region file
-            this.file.seek(0);
+    /**
+     * @param codec the codec used to encode chunks written to this file, chunks already in the file are decoded with
+     *              the codec they were written with
+     */
+    public RegionFile(File file, ChunkCodec codec) throws IOException {
+        this.codec = codec;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        this.chunkSectorCounts = new int[REGION_SIZE];
+        this.usedSectors = new BitSet();
+
+        boolean initialize = channel.size() < REGION_HEADER_SIZE;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_HEADER_SIZE);
+        if (initialize) { // Initialize empty region file
             for (int i = 0; i < REGION_SIZE; i++) {
-                this.file.writeInt(-1);
+                header.putInt(i * Integer.BYTES, -1);
             }
-            usedSectors = new ArrayList<>();
             return;
         }
 
         // Initialize exists region file
-        loadChunkStartSectors();
-
-        int sectorCount = getSectorCount(this.file.length()) - 4;
-        usedSectors = new ArrayList<>(sectorCount);
-        for (int i = 0; i < sectorCount; i++) {
-            usedSectors.add(false);
-        }
         initUsedSectors();
     }
 
-    private void loadChunkStartSectors() throws IOException {
-        file.seek(0);
-        for (int i = 0; i < REGION_SIZE; i++) {
-            chunkStartSectors[i] = file.readInt();
-        }
-    }
-
     private void initUsedSectors() throws IOException {
-        for (int startSector : chunkStartSectors) {
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+        for (int i = 0; i < REGION_SIZE; i++) {
+            int startSector = getStartSector(i);
             if (startSector == -1) {
                 continue;
             }
 
-            int sectorCount = getSectorCount(getChunkDataLength(startSector));
-            useSectors(startSector, startSector + sectorCount);
+            lengthBuffer.clear();
+            readFully(lengthBuffer, getSectorPosition(startSector));
+            int sectorCount = getSectorCount(lengthBuffer.getInt(0) + CHUNK_HEADER_SIZE);
+            chunkSectorCounts[i] = sectorCount;
+            usedSectors.set(startSector, startSector + sectorCount);
         }
     }
 
-    public synchronized void write(int chunkX, int chunkY, int chunkZ, byte[] data, int length) throws IOException {
-        int chunkIndex = getChunkIndex(chunkX, chunkY, chunkZ);
-        int startSector = chunkStartSectors[chunkIndex];
+    public void write(int chunkX, int chunkY, int chunkZ, byte[] data, int length) throws IOException {
+        writeAll(Map.of(getChunkIndexInRegion(chunkX, chunkY, chunkZ), ByteBuffer.wrap(data, 0, length)));
+    }
 
-        if (startSector != -1) {
-            int oldSectorCount = getSectorCount(getChunkDataLength(startSector) + CHUNK_HEADER_SIZE);
-            int newSectorCount = getSectorCount(length + CHUNK_HEADER_SIZE);
-            if (oldSectorCount >= newSectorCount) {
-                freeSectors(startSector + newSectorCount, startSector + oldSectorCount);
+    /**
+     * Write the data of multiple chunks of this region at once. The data is encoded first, then the sectors are
+     * allocated, then the chunks are written in file order, and chunks in consecutive sectors are written with one
+     * gathering write. The header is only updated once all the data is written, and the chunks are always written to
+     * free sectors, so that a failure midway leaves the header pointing at the old data of each chunk.
+     *
+     * @param chunks the chunk data keyed by the chunk index in region, the remaining bytes of each buffer are written
+     * @see RegionConstants#getChunkIndexInRegion(int, int, int)
+     */
+    public void writeAll(Map<Integer, ByteBuffer> chunks) throws IOException {
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, ByteBuffer> encoded = new HashMap<>(chunks.size() * 2);
+        for (Map.Entry<Integer, ByteBuffer> entry : chunks.entrySet()) {
+            ByteBuffer data = entry.getValue();
+            byte[] encodedData;
+            if (data.hasArray()) {
+                encodedData = codec.encode(data.array(), data.arrayOffset() + data.position(), data.remaining());
             } else {
-                freeSectors(startSector, startSector + oldSectorCount);
-                startSector = allocateSectors(getSectorCount(length + CHUNK_HEADER_SIZE));
-                setStartSector(chunkIndex, startSector);
+                byte[] bytes = new byte[data.remaining()];
+                data.duplicate().get(bytes);
+                encodedData = codec.encode(bytes, 0, bytes.length);
             }
-        } else {
-            startSector = allocateSectors(getSectorCount(length + CHUNK_HEADER_SIZE));
-            setStartSector(chunkIndex, startSector);
+            encoded.put(entry.getKey(), ByteBuffer.wrap(encodedData));
         }
+        writeEncoded(encoded);
+    }
 
-        long sectorOffset = getSectorPosition(startSector);
-        file.seek(sectorOffset);
-        file.writeInt(length);
-        file.write(data, 0, length);
+    private synchronized void writeEncoded(Map<Integer, ByteBuffer> chunks) throws IOException {
+        ensureOpen();
+        int[] chunkIndices = new int[chunks.size()];
+        int[] startSectors = new int[chunks.size()];
+        int[] sectorCounts = new int[chunks.size()];
+        ByteBuffer[] buffers = new ByteBuffer[chunks.size() * 3];
+        Integer[] order = new Integer[chunks.size()];
+        int count = 0;
+        try {
+            for (Map.Entry<Integer, ByteBuffer> entry : chunks.entrySet()) {
+                ByteBuffer data = entry.getValue().duplicate();
+                int length = data.remaining();
+                int sectorCount = getSectorCount(length + CHUNK_HEADER_SIZE);
+
+                // The old sectors stay used until the header no longer points at them
+                int startSector = allocateSectors(sectorCount);
+                if (startSector > START_SECTOR_MASK) {
+                    usedSectors.clear(startSector, startSector + sectorCount);
+                    throw new IOException("Region file is full");
+                }
+                chunkIndices[count] = entry.getKey();
+                startSectors[count] = startSector;
+                sectorCounts[count] = sectorCount;
+                buffers[count * 3] = ByteBuffer.allocate(CHUNK_HEADER_SIZE).putInt(0, length);
+                buffers[count * 3 + 1] = data;
+                buffers[count * 3 + 2] = PADDING.duplicate().limit((sectorCount << SECTOR_SIZE_BITS) - length - CHUNK_HEADER_SIZE);
+                order[count] = count;
+                count++;
+            }
+
+            Arrays.sort(order, 0, count, Comparator.comparingInt(i -> startSectors[i]));
+            int runStart = 0;
+            for (int i = 1; i <= count; i++) {
+                if (i < count && startSectors[order[i]] == startSectors[order[i - 1]] + sectorCounts[order[i - 1]]) {
+                    continue;
+                }
+                writeRun(buffers, order, runStart, i, getSectorPosition(startSectors[order[runStart]]));
+                runStart = i;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Nothing points at the new sectors yet
+            for (int i = 0; i < count; i++) {
+                usedSectors.clear(startSectors[i], startSectors[i] + sectorCounts[i]);
+            }
+            throw e;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int chunkIndex = chunkIndices[i];
+            int oldStartSector = getStartSector(chunkIndex);
+            setHeader(chunkIndex, startSectors[i], codec.getId());
+            if (oldStartSector != -1) {
+                usedSectors.clear(oldStartSector, oldStartSector + chunkSectorCounts[chunkIndex]);
+            }
+            chunkSectorCounts[chunkIndex] = sectorCounts[i];
+        }
     }
 
-    public synchronized byte[] read(int chunkX, int chunkY, int chunkZ) throws IOException {
-        int startSector = chunkStartSectors[getChunkIndex(chunkX, chunkY, chunkZ)];
-        if (startSector == -1) {
-            return null;
+    private void writeRun(ByteBuffer[] buffers, Integer[] order, int from, int to, long position) throws IOException {
+        ByteBuffer[] run = new ByteBuffer[(to - from) * 3];
+        long remaining = 0;
+        for (int i = from; i < to; i++) {
+            int entry = order[i];
+            for (int j = 0; j < 3; j++) {
+                ByteBuffer buffer = buffers[entry * 3 + j];
+                run[(i - from) * 3 + j] = buffer;
+                remaining += buffer.remaining();
+            }
         }
 
-        int sectorPosition = getSectorPosition(startSector);
-        file.seek(sectorPosition);
-        int length = file.readInt();
-        byte[] data = new byte[length];
-        file.read(data);
-        return data;
+        channel.position(position);
+        while (remaining > 0) {
+            remaining -= channel.write(run);
+        }
     }
 
-    public boolean hasChunk(int chunkX, int chunkY, int chunkZ) {
-        return chunkStartSectors[getChunkIndex(chunkX, chunkY, chunkZ)] != -1;
+    public byte[] read(int chunkX, int chunkY, int chunkZ) throws IOException {
+        int chunkIndex = getChunkIndexInRegion(chunkX, chunkY, chunkZ);
+        ByteBuffer buffer;
+        int codecId;
+        synchronized (this) {
+            ensureOpen();
+            if (getStartSector(chunkIndex) == -1) {
+                return null;
+            }
+            codecId = getCodecId(chunkIndex);
+            buffer = readSectors(chunkIndex);
+        }
+
+        ChunkCodec chunkCodec = ChunkCodecs.get(codecId);
+        if (chunkCodec == null) {
+            throw new IOException("Unknown chunk codec: " + codecId);
+        }
+        int length = buffer.getInt();
+        if (length > buffer.remaining()) {
+            throw new IOException("Unexpected end of region file");
+        }
+        return chunkCodec.decode(buffer.array(), buffer.position(), length);
     }
 
-    private int getChunkDataLength(int startSector) throws IOException {
-        long sectorPosition = getSectorPosition(startSector);
-        file.seek(sectorPosition);
-        return file.readInt();
+    private ByteBuffer readSectors(int chunkIndex) throws IOException {
+        int startSector = getStartSector(chunkIndex);
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSectorCounts[chunkIndex] << SECTOR_SIZE_BITS);
+        long position = getSectorPosition(startSector);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1) { // The last sector of the file may be not padded
+                break;
+            }
+        }
+        return buffer.flip();
     }
 
-    private int getSectorCount(long length) {
-        return (int) ((length & SECTOR_MAX_INDEX) == 0 ? length >> SECTOR_SIZE_BITS : (length >> SECTOR_SIZE_BITS) + 1);
+    public synchronized boolean hasChunk(int chunkX, int chunkY, int chunkZ) {
+        return !closed && getStartSector(getChunkIndexInRegion(chunkX, chunkY, chunkZ)) != -1;
     }
 
-    private int getSectorPosition(int sector) {
-        return sector * SECTOR_SIZE + REGION_HEADER_SIZE;
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new IOException("Unexpected end of region file");
+            }
+        }
     }
 
-    private int getChunkIndex(int chunkX, int chunkY, int chunkZ) {
-        return (chunkX & REGION_MAX_X) | ((chunkY & REGION_MAX_Y) << REGION_X_BITS) | ((chunkZ & REGION_MAX_Z) << (REGION_X_BITS + REGION_Y_BITS));
+    private int getSectorCount(long length) {
+        return (int) ((length & SECTOR_MAX_INDEX) == 0 ? length >> SECTOR_SIZE_BITS : (length >> SECTOR_SIZE_BITS) + 1);
     }
 
-    private void useSectors(int start, int end) {
-        for (int i = start; i < end; i++) {
-            usedSectors.set(i, true);
-        }
+    private long getSectorPosition(int sector) {
+        return ((long) sector << SECTOR_SIZE_BITS) + REGION_HEADER_SIZE;
     }
 
-    private void freeSectors(int start, int end) {
-        for (int i = start; i < end; i++) {
-            usedSectors.set(i, false);
-        }
+    private int getStartSector(int chunkIndex) {
+        int entry = header.getInt(chunkIndex * Integer.BYTES);
+        return entry == -1 ? -1 : entry & START_SECTOR_MASK;
     }
 
-    private void setStartSector(int chunkIndex, int startSector) throws IOException {
-        chunkStartSectors[chunkIndex] = startSector;
-        file.seek(chunkIndex * Integer.BYTES);
-        file.writeInt(startSector);
+    private int getCodecId(int chunkIndex) {
+        return header.getInt(chunkIndex * Integer.BYTES) >>> CODEC_SHIFT;
     }
 
-    private int allocateSectors(int count) {
-        int startSector = -1;
-        int allocatedSector = 0;
-        for (int i = 0; i < usedSectors.size(); i++) { // find unused sectors
-            if (usedSectors.get(i)) {
-                startSector = -1;
-                allocatedSector = 0;
-            } else {
-                if (startSector == -1) {
-                    startSector = i;
-                }
-                allocatedSector++;
+    private void setHeader(int chunkIndex, int startSector, int codecId) {
+        header.putInt(chunkIndex * Integer.BYTES, startSector | codecId << CODEC_SHIFT);
+    }
 
-                if (allocatedSector == count) {
-                    useSectors(startSector, startSector + allocatedSector);
-                    return startSector;
-                }
+    /**
+     * Find the first free sector range large enough for the count of sectors and mark it used.
+     */
+    private int allocateSectors(int count) {
+        int start = usedSectors.nextClearBit(0);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end == -1 || end - start >= count) {
+                usedSectors.set(start, start + count);
+                return start;
             }
+            start = usedSectors.nextClearBit(end);
         }
+    }
 
-        if (startSector == -1) { // if no found sector
-            startSector = usedSectors.size();
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Region file has been closed");
         }
+    }
 
-        useSectors(startSector, startSector + allocatedSector);
-
-        if (allocatedSector < count) { // add enough sectors
-            for (int i = 0, size = count - allocatedSector; i < size; i++) {
-                usedSectors.add(true);
-            }
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
         }
-        return startSector;
+        closed = true;
+        header.force();
+        channel.close();
+        unmap(header);
     }
 
-    @Override
-    public void close() throws IOException {
-        file.close();
+    /**
+     * Release the mapping now instead of when the buffer is collected, which may be never for a long lived process and
+     * keeps the file locked on some platforms. The buffer must not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // Unmapped when collected
+        }
     }
 }
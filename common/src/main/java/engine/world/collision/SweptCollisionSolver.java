@@ -0,0 +1,206 @@
+package engine.world.collision;
+
+import engine.block.Block;
+import engine.block.BlockShape;
+import engine.math.BlockPos;
+import engine.registry.Registries;
+import engine.registry.game.BlockRegistry;
+import engine.world.WorldCommon;
+import engine.world.chunk.Chunk;
+import org.joml.AABBd;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+import static engine.world.chunk.ChunkConstants.*;
+
+/**
+ * Clips the motion of an entity against the blocks it would run into, one axis after another (Y, then X, then Z).
+ * <p>
+ * The solver keeps its scratch arrays and the collision boxes of the static block shapes between calls, so that it does
+ * not allocate once warmed up. Only the loaded chunks are read, and an unloaded chunk blocks the entity as if it were
+ * solid. Use one solver per thread. The world is passed to each call and not kept afterwards, so that a solver shared by
+ * the worlds never keeps an unloaded one reachable.
+ */
+@NotThreadSafe
+public final class SweptCollisionSolver {
+
+    /**
+     * Blocks may stick out of their cell upwards, e.g. fences, so the blocks below the swept box are tested too.
+     */
+    private static final int EXTRA_BELOW = 1;
+
+    private static final double EPSILON = 1e-7;
+
+    private static final AABBd[] SOLID = {new AABBd(0, 0, 0, 1, 1, 1)};
+
+    /**
+     * The world of the current call.
+     */
+    private WorldCommon world;
+
+    private Block[] cachedBlocks = new Block[0];
+    private AABBd[][] cachedBoxes = new AABBd[0][];
+
+    private Chunk lastChunk;
+    private int lastChunkX, lastChunkY, lastChunkZ;
+    private boolean lastChunkValid;
+
+    /**
+     * The candidate boxes in world space, 6 doubles (min xyz, max xyz) each.
+     */
+    private double[] candidates = new double[6 * 64];
+    private int candidateCount;
+
+    /**
+     * Compute the motion of the entity after the collision.
+     *
+     * @param result receives the clipped motion, may be the motion itself
+     */
+    public void solve(@Nonnull WorldCommon world, @Nonnull Vector3d position, @Nonnull AABBd box, @Nonnull Vector3f motion, @Nonnull Vector3f result) {
+        this.world = world;
+        try {
+            solve(position, box, motion, result);
+        } finally {
+            this.world = null;
+            lastChunk = null;
+        }
+    }
+
+    private void solve(Vector3d position, AABBd box, Vector3f motion, Vector3f result) {
+        double minX = position.x + box.minX, minY = position.y + box.minY, minZ = position.z + box.minZ;
+        double maxX = position.x + box.maxX, maxY = position.y + box.maxY, maxZ = position.z + box.maxZ;
+        double dx = motion.x, dy = motion.y, dz = motion.z;
+
+        // Chunks may have been unloaded since the last call
+        lastChunkValid = false;
+        collectCandidates(
+                (int) Math.floor(Math.min(minX, minX + dx)),
+                (int) Math.floor(Math.min(minY, minY + dy)) - EXTRA_BELOW,
+                (int) Math.floor(Math.min(minZ, minZ + dz)),
+                (int) Math.floor(Math.max(maxX, maxX + dx)),
+                (int) Math.floor(Math.max(maxY, maxY + dy)),
+                (int) Math.floor(Math.max(maxZ, maxZ + dz)));
+
+        if (dy != 0) {
+            dy = clip(1, dy, minX, minY, minZ, maxX, maxY, maxZ);
+            minY += dy;
+            maxY += dy;
+        }
+        if (dx != 0) {
+            dx = clip(0, dx, minX, minY, minZ, maxX, maxY, maxZ);
+            minX += dx;
+            maxX += dx;
+        }
+        if (dz != 0) {
+            dz = clip(2, dz, minX, minY, minZ, maxX, maxY, maxZ);
+        }
+        result.set((float) dx, (float) dy, (float) dz);
+    }
+
+    /**
+     * @param axis 0 for X, 1 for Y and 2 for Z
+     * @return the motion along the axis up to the first candidate in the way
+     */
+    private double clip(int axis, double delta, double minX, double minY, double minZ,
+                        double maxX, double maxY, double maxZ) {
+        double[] candidates = this.candidates;
+        for (int i = 0, end = candidateCount * 6; i < end; i += 6) {
+            if (axis != 0 && (candidates[i + 3] <= minX + EPSILON || candidates[i] >= maxX - EPSILON)) continue;
+            if (axis != 1 && (candidates[i + 4] <= minY + EPSILON || candidates[i + 1] >= maxY - EPSILON)) continue;
+            if (axis != 2 && (candidates[i + 5] <= minZ + EPSILON || candidates[i + 2] >= maxZ - EPSILON)) continue;
+
+            double min = axis == 0 ? minX : axis == 1 ? minY : minZ;
+            double max = axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+            if (delta > 0) {
+                double distance = candidates[i + axis] - max;
+                // Boxes the entity is already inside do not stop it, so that it can get out
+                if (distance >= -EPSILON && distance < delta) {
+                    delta = Math.max(0, distance);
+                }
+            } else {
+                double distance = candidates[i + 3 + axis] - min;
+                if (distance <= EPSILON && distance > delta) {
+                    delta = Math.min(0, distance);
+                }
+            }
+        }
+        return delta;
+    }
+
+    private void collectCandidates(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        candidateCount = 0;
+        BlockRegistry registry = Registries.getBlockRegistry();
+        int airId = registry.getId(registry.air());
+        for (int x = fromX; x <= toX; x++) {
+            for (int z = fromZ; z <= toZ; z++) {
+                for (int y = fromY; y <= toY; y++) {
+                    Chunk chunk = getChunk(x >> CHUNK_X_BITS, y >> CHUNK_Y_BITS, z >> CHUNK_Z_BITS);
+                    AABBd[] boxes;
+                    if (chunk == null) {
+                        boxes = SOLID;
+                    } else {
+                        int id = chunk.getBlockId(x, y, z);
+                        if (id == airId) {
+                            continue;
+                        }
+                        boxes = getBoxes(registry, id, x, y, z);
+                    }
+                    for (AABBd box : boxes) {
+                        addCandidate(x, y, z, box);
+                    }
+                }
+            }
+        }
+    }
+
+    private AABBd[] getBoxes(BlockRegistry registry, int id, int x, int y, int z) {
+        Block block = registry.getValue(id);
+        if (block == null) {
+            return SOLID;
+        }
+        BlockShape shape = block.getShape();
+        if (!shape.isStatic()) {
+            return shape.getBoundingBoxes(world, BlockPos.of(x, y, z), block);
+        }
+        if (id >= cachedBlocks.length) {
+            int length = Math.max(id + 1, cachedBlocks.length << 1);
+            cachedBlocks = Arrays.copyOf(cachedBlocks, length);
+            cachedBoxes = Arrays.copyOf(cachedBoxes, length);
+        }
+        // Ids may be remapped when the registry is synchronized
+        if (cachedBlocks[id] != block) {
+            cachedBlocks[id] = block;
+            cachedBoxes[id] = shape.getBoundingBoxes();
+        }
+        return cachedBoxes[id];
+    }
+
+    private void addCandidate(int x, int y, int z, AABBd box) {
+        int offset = candidateCount * 6;
+        if (offset + 6 > candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidates.length << 1);
+        }
+        candidates[offset] = x + box.minX;
+        candidates[offset + 1] = y + box.minY;
+        candidates[offset + 2] = z + box.minZ;
+        candidates[offset + 3] = x + box.maxX;
+        candidates[offset + 4] = y + box.maxY;
+        candidates[offset + 5] = z + box.maxZ;
+        candidateCount++;
+    }
+
+    private Chunk getChunk(int chunkX, int chunkY, int chunkZ) {
+        if (!lastChunkValid || chunkX != lastChunkX || chunkY != lastChunkY || chunkZ != lastChunkZ) {
+            lastChunk = world.getChunkManager().getLoadedChunk(chunkX, chunkY, chunkZ);
+            lastChunkX = chunkX;
+            lastChunkY = chunkY;
+            lastChunkZ = chunkZ;
+            lastChunkValid = true;
+        }
+        return lastChunk;
+    }
+}
@@ -2,7 +2,7 @@ package engine.world.gen;
 
 import engine.block.Block;
 import engine.event.block.cause.BlockChangeCause;
-import engine.math.BlockPos;
+import engine.registry.Registries;
 import engine.world.chunk.Chunk;
 
 import static engine.world.chunk.ChunkConstants.*;
@@ -22,13 +22,15 @@ public class FlatChunkGenerator implements ChunkGenerator {
         int cz = chunk.getZ();
         if (cy < 0) //not making negative-Y chunks
             return;
+        var cause = new BlockChangeCause.WorldGenCause();
         for (int j = 0; j < CHUNK_Y_SIZE; j++) {
             if (j + cy * CHUNK_Y_SIZE >= layers.length) {
                 break;
             }
+            int blockId = Registries.getBlockRegistry().getId(layers[j + cy * CHUNK_Y_SIZE]);
             for (int i = 0; i < CHUNK_X_SIZE; i++) {
                 for (int k = 0; k < CHUNK_Z_SIZE; k++) {
-                    chunk.setBlock(BlockPos.of(i, j, k), layers[j + cy * CHUNK_Y_SIZE], new BlockChangeCause.WorldGenCause());
+                    chunk.setBlockId(i, j, k, blockId, cause);
                 }
             }
         }
@@ -0,0 +1,66 @@
+package engine.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimpleEventBusTest {
+
+    @Test
+    public void orderAndHierarchy() {
+        SimpleEventBus bus = SimpleEventBus.builder().build();
+        List<String> received = new ArrayList<>();
+        bus.addListener(Order.LATE, false, ChildEvent.class, event -> received.add("child late"));
+        bus.post(new ChildEvent());
+        bus.addListener(Order.FIRST, false, ParentEvent.class, event -> received.add("parent first"));
+        bus.addListener(Order.DEFAULT, false, ChildEvent.class, event -> received.add("child default"));
+
+        bus.post(new ChildEvent());
+        assertEquals(List.of("child late", "parent first", "child default", "child late"), received);
+
+        received.clear();
+        bus.post(new ParentEvent());
+        assertEquals(List.of("parent first"), received);
+    }
+
+    @Test
+    public void hasListeners() {
+        SimpleEventBus bus = SimpleEventBus.builder().build();
+        assertFalse(bus.hasListeners(ChildEvent.class));
+
+        Consumer<ParentEvent> listener = event -> {
+        };
+        bus.addListener(Order.DEFAULT, false, ParentEvent.class, listener);
+        assertTrue(bus.hasListeners(ParentEvent.class));
+        assertTrue(bus.hasListeners(ChildEvent.class));
+        assertFalse(bus.hasListeners(OtherEvent.class));
+    }
+
+    @Test
+    public void unregister() {
+        SimpleEventBus bus = SimpleEventBus.builder().build();
+        List<Event> received = new ArrayList<>();
+        Consumer<ParentEvent> listener = received::add;
+        bus.addListener(Order.DEFAULT, false, ParentEvent.class, listener);
+        bus.post(new ChildEvent());
+        assertEquals(1, received.size());
+
+        bus.unregister(listener);
+        bus.post(new ChildEvent());
+        assertEquals(1, received.size());
+        assertFalse(bus.hasListeners(ChildEvent.class));
+    }
+
+    public static class ParentEvent implements Event {
+    }
+
+    public static class ChildEvent extends ParentEvent {
+    }
+
+    public static class OtherEvent implements Event {
+    }
+}
@@ -0,0 +1,66 @@
+package engine.registry.game;
+
+import engine.registry.Namespaces;
+import engine.registry.RegistrationException;
+import engine.server.network.packet.PacketAlive;
+import engine.server.network.packet.PacketDisconnect;
+import engine.server.network.packet.PacketProvider;
+import engine.server.network.packet.PacketRaw;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PacketRegistryTest {
+
+    @BeforeAll
+    static void setUp() {
+        Namespaces.setNamespace("test");
+    }
+
+    @Test
+    void getId() {
+        PacketRegistry registry = new PacketRegistry();
+        registry.register(new PacketProvider.Builder().type(PacketRaw.class).name("raw").build());
+        registry.register(new PacketProvider.Builder().type(PacketAlive.class).name("alive").build());
+
+        assertEquals(0, registry.getId(new PacketRaw()));
+        assertEquals(1, registry.getId(new PacketAlive()));
+        assertEquals(0, registry.getId(new PacketDisconnect()));
+        assertThrows(RegistrationException.class, () ->
+                registry.register(new PacketProvider.Builder().type(PacketAlive.class).name("alive2").build()));
+    }
+
+    @Test
+    void sync() {
+        PacketRegistry registry = new PacketRegistry();
+        registry.register(new PacketProvider.Builder().type(PacketRaw.class).name("raw").build());
+        registry.register(new PacketProvider.Builder().type(PacketAlive.class).name("alive").build());
+
+        registry.sync(Map.of("test:raw", 1, "test:alive", 0));
+        assertEquals(1, registry.getId(new PacketRaw()));
+        assertEquals(0, registry.getId(new PacketAlive()));
+        assertEquals(PacketAlive.class, registry.getValue(0).getPacketType());
+
+        registry.unsync();
+        assertEquals(0, registry.getId(new PacketRaw()));
+        assertEquals(1, registry.getId(new PacketAlive()));
+        assertEquals(PacketAlive.class, registry.getValue(1).getPacketType());
+    }
+
+    @Test
+    void syncSameId() {
+        PacketRegistry registry = new PacketRegistry();
+        registry.register(new PacketProvider.Builder().type(PacketRaw.class).name("raw").build());
+        registry.register(new PacketProvider.Builder().type(PacketAlive.class).name("alive").build());
+
+        assertThrows(RegistrationException.class, () -> registry.sync(Map.of("test:raw", 1, "test:alive", 1)));
+        assertEquals(0, registry.getId(new PacketRaw()));
+        assertEquals(1, registry.getId(new PacketAlive()));
+        assertEquals(PacketRaw.class, registry.getValue(0).getPacketType());
+        assertEquals(PacketAlive.class, registry.getValue(1).getPacketType());
+    }
+}
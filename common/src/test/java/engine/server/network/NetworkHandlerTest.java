@@ -0,0 +1,84 @@
+package engine.server.network;
+
+import engine.event.EventBus;
+import engine.event.Listener;
+import engine.event.SimpleEventBus;
+import engine.event.reflect.ReflectEventListenerFactory;
+import engine.server.event.PacketReceivedEvent;
+import engine.server.network.packet.c2s.PacketChunkAck;
+import engine.util.Side;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkHandlerTest {
+
+    private int receivedCount;
+
+    @Listener
+    public void onChunkAck(PacketReceivedEvent<PacketChunkAck> event) {
+        receivedCount += event.getPacket().getCount();
+    }
+
+    private NetworkHandler createHandler() {
+        EventBus eventBus = SimpleEventBus.builder().eventListenerFactory(ReflectEventListenerFactory.instance()).build();
+        eventBus.register(this);
+        NetworkHandler handler = new NetworkHandler(Side.SERVER, eventBus);
+        handler.setQueueInboundPackets(true);
+        return handler;
+    }
+
+    @Test
+    void handleQueuedPackets() {
+        NetworkHandler handler = createHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(new PacketChunkAck(1), new PacketChunkAck(2), new PacketChunkAck(4));
+        assertEquals(0, receivedCount);
+
+        assertEquals(2, handler.handleQueuedPackets(2));
+        assertEquals(3, receivedCount);
+        assertEquals(1, handler.handleQueuedPackets(2));
+        assertEquals(7, receivedCount);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void suspendReading() {
+        NetworkHandler handler = createHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        for (int i = 0; i < NetworkHandler.MAX_QUEUED_PACKETS; i++) {
+            channel.writeInbound(new PacketChunkAck(1));
+        }
+        assertFalse(channel.config().isAutoRead());
+
+        handler.handleQueuedPackets(NetworkHandler.MAX_QUEUED_PACKETS - NetworkHandler.RESUME_QUEUED_PACKETS - 1);
+        assertFalse(channel.config().isAutoRead());
+        handler.handleQueuedPackets(1);
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(NetworkHandler.MAX_QUEUED_PACKETS - NetworkHandler.RESUME_QUEUED_PACKETS, receivedCount);
+
+        handler.discardQueuedPackets();
+        assertEquals(0, handler.handleQueuedPackets(Integer.MAX_VALUE));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void sendBeforeActive() {
+        NetworkHandler handler = createHandler();
+        handler.setAutoFlush(false);
+        PacketChunkAck first = new PacketChunkAck(1);
+        PacketChunkAck second = new PacketChunkAck(2);
+        handler.pendPacket(first);
+        handler.sendPacket(second);
+
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        assertSame(first, channel.readOutbound());
+        assertSame(second, channel.readOutbound());
+        PacketChunkAck third = new PacketChunkAck(4);
+        handler.sendPacket(third);
+        handler.flush();
+        assertSame(third, channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,83 @@
+package engine.world;
+
+import engine.entity.BaseEntity;
+import engine.entity.Entity;
+import engine.entity.component.MotionState;
+import engine.event.SimpleEventBus;
+import engine.game.Game;
+import org.joml.AABBd;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DefaultEntityManagerTest {
+
+    static class TestEntity extends BaseEntity {
+        TestEntity(int id, World world, double x, double y, double z, double extent) {
+            super(id, world, x, y, z);
+            setBoundingBox(new AABBd(-extent, -extent, -extent, extent, extent, extent));
+        }
+    }
+
+    private static World createWorld() {
+        World world = mock(World.class);
+        Game game = mock(Game.class);
+        when(world.getGame()).thenReturn(game);
+        when(game.getEventBus()).thenReturn(SimpleEventBus.builder().build());
+        return world;
+    }
+
+    @Test
+    public void moveBetweenBuckets() {
+        World world = createWorld();
+        DefaultEntityManager manager = new DefaultEntityManager(world);
+        Entity entity = new TestEntity(0, world, 0.5, 0.5, 0.5, 0.25);
+        manager.spawnEntity(entity);
+        assertEquals(List.of(entity), manager.getEntitiesWithBoundingBox(0, 0, 0, 1, 1, 1));
+        assertEquals(List.of(), manager.getEntitiesWithBoundingBox(100, 0, 0, 101, 1, 1));
+
+        manager.setEntityPosition(entity, 100.5, 0.5, 0.5);
+        assertEquals(List.of(entity), manager.getEntitiesWithBoundingBox(100, 0, 0, 101, 1, 1));
+        assertEquals(List.of(), manager.getEntitiesWithBoundingBox(0, 0, 0, 1, 1, 1));
+        assertEquals(List.of(entity), manager.getEntitiesWithSphere(100.5, 0.5, 0.5, 1));
+    }
+
+    @Test
+    public void largeEntityFoundFromNeighborChunk() {
+        World world = createWorld();
+        DefaultEntityManager manager = new DefaultEntityManager(world);
+        // Bucketed in the chunk of its position, but reaches into the next chunks
+        Entity entity = new TestEntity(0, world, 16, 16, 16, 40);
+        manager.spawnEntity(entity);
+        assertEquals(List.of(entity), manager.getEntitiesWithBoundingBox(50, 16, 16, 51, 17, 17));
+        assertEquals(List.of(entity), manager.getEntitiesWithBoundingBox(-20, 16, 16, -19, 17, 17));
+        assertEquals(List.of(), manager.getEntitiesWithBoundingBox(60, 16, 16, 61, 17, 17));
+    }
+
+    @Test
+    public void forEachMotionFromComponentStore() {
+        World world = createWorld();
+        DefaultEntityManager manager = new DefaultEntityManager(world, true);
+        Entity moving = new TestEntity(0, world, 0.5, 0.5, 0.5, 0.25);
+        moving.getMotion().set(1, 0, 0);
+        Entity still = new TestEntity(1, world, 2.5, 0.5, 0.5, 0.25);
+        manager.spawnEntity(moving);
+        manager.spawnEntity(still);
+        assertEquals(2, manager.getComponentStore().count(MotionState.class));
+
+        List<Entity> visited = new ArrayList<>();
+        manager.forEachMotion((entity, state) -> {
+            assertSame(entity.getPosition(), state.getPosition());
+            if (state.isMoving()) {
+                visited.add(entity);
+            }
+        });
+        assertEquals(List.of(moving), visited);
+    }
+}
@@ -0,0 +1,124 @@
+package engine.world.chunk;
+
+import engine.util.NibbleArray;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static engine.world.chunk.ChunkConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockStorageTest {
+
+    @Test
+    void singleValue() {
+        BlockStorage storage = new BlockStorage(3);
+        assertTrue(storage.isSingleValue());
+        assertEquals(3, storage.getBlockId(0, 0, 0));
+        assertEquals(3, storage.getBlockId(CHUNK_MAX_X, CHUNK_MAX_Y, CHUNK_MAX_Z));
+        assertEquals(3, storage.setBlockId(1, 2, 3, 3));
+        assertTrue(storage.isSingleValue());
+    }
+
+    @Test
+    void grow() {
+        BlockStorage storage = new BlockStorage();
+        assertEquals(0, storage.setBlockId(1, 2, 3, 1));
+        assertEquals(1, storage.getBitsPerEntry());
+        assertEquals(1, storage.getBlockId(1, 2, 3));
+        assertEquals(0, storage.getBlockId(3, 2, 1));
+
+        for (int i = 0; i < 300; i++) {
+            storage.setBlockId(i & CHUNK_MAX_X, i >> CHUNK_X_BITS, 5, i + 1000);
+        }
+        assertEquals(16, storage.getBitsPerEntry());
+        for (int i = 0; i < 300; i++) {
+            assertEquals(i + 1000, storage.getBlockId(i & CHUNK_MAX_X, i >> CHUNK_X_BITS, 5));
+        }
+        assertEquals(1, storage.getBlockId(1, 2, 3));
+        assertEquals(0, storage.getBlockId(3, 2, 1));
+    }
+
+    @Test
+    void compact() {
+        BlockStorage storage = new BlockStorage();
+        for (int i = 0; i < 20; i++) {
+            storage.setBlockId(i, 0, 0, i + 1);
+        }
+        assertEquals(8, storage.getBitsPerEntry());
+
+        for (int i = 2; i < 20; i++) {
+            storage.setBlockId(i, 0, 0, 0);
+        }
+        storage.compact();
+        assertEquals(2, storage.getBitsPerEntry());
+        assertEquals(1, storage.getBlockId(0, 0, 0));
+        assertEquals(2, storage.getBlockId(1, 0, 0));
+        assertEquals(0, storage.getBlockId(2, 0, 0));
+
+        storage.setBlockId(0, 0, 0, 0);
+        storage.setBlockId(1, 0, 0, 0);
+        storage.compact();
+        assertTrue(storage.isSingleValue());
+        assertEquals(0, storage.getBlockId(1, 0, 0));
+    }
+
+    @Test
+    void copy() {
+        BlockStorage storage = new BlockStorage();
+        storage.setBlockId(1, 2, 3, 4);
+        BlockStorage copy = new BlockStorage(storage);
+        storage.setBlockId(1, 2, 3, 5);
+        storage.setBlockId(3, 2, 1, 6);
+
+        assertEquals(4, copy.getBlockId(1, 2, 3));
+        assertEquals(0, copy.getBlockId(3, 2, 1));
+        copy.setBlockId(0, 0, 0, 7);
+        assertEquals(0, storage.getBlockId(0, 0, 0));
+    }
+
+    @Test
+    void writeAndRead() throws IOException {
+        BlockStorage storage = new BlockStorage(7);
+        for (int i = 0; i < BLOCK_COUNT; i += 97) {
+            storage.setBlockId(i & CHUNK_MAX_X, (i >> CHUNK_X_BITS) & CHUNK_MAX_Y, i >> (CHUNK_X_BITS + CHUNK_Y_BITS), i & 15);
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        storage.write(new DataOutputStream(output));
+        BlockStorage read = new BlockStorage();
+        read.read(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+
+        assertEquals(storage.getBitsPerEntry(), read.getBitsPerEntry());
+        for (int x = 0; x < CHUNK_X_SIZE; x++) {
+            for (int y = 0; y < CHUNK_Y_SIZE; y++) {
+                for (int z = 0; z < CHUNK_Z_SIZE; z++) {
+                    assertEquals(storage.getBlockId(x, y, z), read.getBlockId(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    void readLegacy() throws IOException {
+        NibbleArray raw = new NibbleArray(8, BLOCK_COUNT);
+        for (int i = 0; i < BLOCK_COUNT; i += 13) {
+            raw.set(i, i & 255);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        for (long value : raw.getBackingArray()) {
+            dataOutput.writeLong(value);
+        }
+
+        BlockStorage read = BlockStorage.readLegacy(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+        for (int x = 0; x < CHUNK_X_SIZE; x++) {
+            for (int y = 0; y < CHUNK_Y_SIZE; y++) {
+                for (int z = 0; z < CHUNK_Z_SIZE; z++) {
+                    int index = x | (y << CHUNK_X_BITS) | (z << (CHUNK_X_BITS + CHUNK_Y_BITS));
+                    assertEquals(raw.get(index), read.getBlockId(x, y, z));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package engine.world.chunk;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkTicketManagerTest {
+
+    @Test
+    void addAndRemove() {
+        ChunkTicketManager manager = new ChunkTicketManager();
+        ChunkTicket first = manager.addTicket(ChunkTicket.Type.PLUGIN, ChunkPos.of(0, 0, 0), 2, ChunkTicket.NEVER_EXPIRE);
+        ChunkTicket second = manager.addTicket(ChunkTicket.Type.PLUGIN, ChunkPos.of(2, 0, 0), 1, ChunkTicket.NEVER_EXPIRE);
+        assertTrue(manager.hasTicket(0, 0, 2));
+        assertTrue(manager.hasTicket(3, 0, 0));
+        assertFalse(manager.hasTicket(2, 2, 0));
+        assertFalse(manager.hasTicket(-2, 1, 1));
+
+        manager.removeTicket(first);
+        assertFalse(manager.hasTicket(0, 0, 0));
+        assertTrue(manager.hasTicket(1, 0, 0));
+        assertTrue(manager.hasTicket(2, 0, 0));
+
+        manager.removeTicket(second);
+        manager.removeTicket(second);
+        assertFalse(manager.hasTicket(2, 0, 0));
+    }
+
+    @Test
+    void expire() {
+        ChunkTicketManager manager = new ChunkTicketManager();
+        manager.addTicket(ChunkTicket.Type.PLUGIN, ChunkPos.of(0, 0, 0), 0, 20);
+        manager.removeExpiredTickets(19);
+        assertTrue(manager.hasTicket(0, 0, 0));
+        manager.removeExpiredTickets(20);
+        assertFalse(manager.hasTicket(0, 0, 0));
+    }
+}
@@ -0,0 +1,95 @@
+package engine.world.chunk;
+
+import engine.block.Block;
+import engine.entity.EntityProvider;
+import engine.item.Item;
+import engine.registry.Registries;
+import engine.registry.Registry;
+import engine.registry.RegistryManager;
+import engine.registry.game.BlockRegistry;
+import engine.registry.game.EntityRegistry;
+import engine.registry.game.ItemRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Optional;
+
+import static engine.world.chunk.ChunkConstants.BLOCK_COUNT;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+class CubicChunkTest {
+
+    @Test
+    void readLegacyFormat() throws IOException {
+        // A short of the non-air block count, then the raw block ids with 8 bits per entry
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeShort(1);
+        dataOutput.writeLong(5);
+        for (int i = 1; i < BLOCK_COUNT / 8; i++) {
+            dataOutput.writeLong(0);
+        }
+
+        CubicChunk chunk = new CubicChunk(null, 0, 0, 0);
+        chunk.read(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+        assertFalse(chunk.isAirChunk());
+        assertEquals(5, chunk.getBlockId(0, 0, 0));
+        assertEquals(0, chunk.getBlockId(1, 0, 0));
+
+        // Written back in the current format
+        output.reset();
+        chunk.write(new DataOutputStream(output));
+        CubicChunk read = new CubicChunk(null, 0, 0, 0);
+        read.read(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+        assertFalse(read.isAirChunk());
+        assertEquals(5, read.getBlockId(0, 0, 0));
+        assertEquals(0, read.getBlockId(1, 0, 0));
+    }
+
+    @Test
+    void readLegacyAirChunk() throws IOException {
+        CubicChunk chunk = new CubicChunk(null, 0, 0, 0);
+        chunk.read(new DataInputStream(new ByteArrayInputStream(new byte[2])));
+        assertTrue(chunk.isAirChunk());
+    }
+
+    @Test
+    void snapshotIsCopiedOnWrite() {
+        withAirId(0, () -> {
+            CubicChunk chunk = new CubicChunk(null, 0, 0, 0);
+            chunk.setBlockId(1, 2, 3, 5);
+            CubicChunk snapshot = chunk.snapshot();
+
+            chunk.setBlockId(1, 2, 3, 6);
+            chunk.setBlockId(3, 2, 1, 7);
+            assertEquals(5, snapshot.getBlockId(1, 2, 3));
+            assertEquals(0, snapshot.getBlockId(3, 2, 1));
+            assertEquals(6, chunk.getBlockId(1, 2, 3));
+            assertEquals(7, chunk.getBlockId(3, 2, 1));
+
+            // A snapshot of a snapshot, e.g. a chunk reloaded whilst saving, is copied on write too
+            CubicChunk reloaded = snapshot.snapshot();
+            reloaded.setBlockId(1, 2, 3, 8);
+            assertEquals(5, snapshot.getBlockId(1, 2, 3));
+            assertEquals(8, reloaded.getBlockId(1, 2, 3));
+        });
+    }
+
+    private static void withAirId(int airId, Runnable test) {
+        Block air = mock(Block.class);
+        BlockRegistry blockRegistry = mock(BlockRegistry.class);
+        when(blockRegistry.air()).thenReturn(air);
+        when(blockRegistry.getId(air)).thenReturn(airId);
+        RegistryManager registryManager = mock(RegistryManager.class);
+        doReturn(Optional.of(mock(Registry.class))).when(registryManager).getRegistry(any(Class.class));
+        doReturn(Optional.of(blockRegistry)).when(registryManager).getRegistry(Block.class);
+        doReturn(Optional.of(mock(ItemRegistry.class))).when(registryManager).getRegistry(Item.class);
+        doReturn(Optional.of(mock(EntityRegistry.class))).when(registryManager).getRegistry(EntityProvider.class);
+        // The registries are weakly referenced
+        Registries.init(registryManager);
+        test.run();
+        assertSame(blockRegistry, Registries.getBlockRegistry());
+    }
+}
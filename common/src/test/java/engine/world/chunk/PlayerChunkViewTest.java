@@ -0,0 +1,54 @@
+package engine.world.chunk;
+
+import engine.entity.Entity;
+import engine.player.Player;
+import engine.world.WorldCommon;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.*;
+
+class PlayerChunkViewTest {
+
+    @Test
+    void retryFailedLoad() {
+        WorldCommon world = mock(WorldCommon.class);
+        Entity entity = mock(Entity.class);
+        when(entity.getPosition()).thenReturn(new Vector3d(1, 1, 1));
+        when(entity.getRotation()).thenReturn(new Vector3f());
+        Player player = mock(Player.class);
+        when(player.isControllingEntity()).thenReturn(true);
+        when(player.getWorld()).thenReturn(world);
+        when(player.getControlledEntity()).thenReturn(entity);
+        WorldCommonChunkManager chunkManager = mock(WorldCommonChunkManager.class);
+        when(chunkManager.getWorld()).thenReturn(world);
+        when(chunkManager.getChunk(0, 0, 0)).thenReturn(Optional.empty());
+        CompletableFuture<Chunk> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException());
+        when(chunkManager.loadChunkAsync(0, 0, 0)).thenReturn(failed);
+
+        PlayerChunkView view = new PlayerChunkView(chunkManager, player);
+        view.tick(0);
+        verify(chunkManager, times(1)).loadChunkAsync(0, 0, 0);
+
+        int delay = PlayerChunkView.RETRY_DELAY_TICKS;
+        for (int attempt = 2; attempt <= PlayerChunkView.MAX_LOAD_ATTEMPTS; attempt++, delay *= 2) {
+            for (int i = 0; i < delay - 1; i++) {
+                view.tick(0);
+            }
+            verify(chunkManager, times(attempt - 1)).loadChunkAsync(0, 0, 0);
+            view.tick(0);
+            verify(chunkManager, times(attempt)).loadChunkAsync(0, 0, 0);
+        }
+
+        for (int i = 0; i < delay * 2; i++) {
+            view.tick(0);
+        }
+        verify(chunkManager, times(PlayerChunkView.MAX_LOAD_ATTEMPTS)).loadChunkAsync(0, 0, 0);
+    }
+}
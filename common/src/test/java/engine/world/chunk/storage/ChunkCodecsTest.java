@@ -0,0 +1,151 @@
+package engine.world.chunk.storage;
+
+import engine.world.chunk.CubicChunk;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Random;
+
+import static engine.world.chunk.ChunkConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkCodecsTest {
+
+    @Test
+    void roundTrip() throws IOException {
+        byte[] repetitive = new byte[32768];
+        for (int i = 0; i < repetitive.length; i++) {
+            repetitive[i] = (byte) (i / 1000);
+        }
+        byte[] random = new byte[5000];
+        new Random(42).nextBytes(random);
+        byte[] mixed = new byte[1000];
+        System.arraycopy(random, 0, mixed, 0, 300);
+        System.arraycopy(repetitive, 0, mixed, 600, 400);
+
+        for (ChunkCodec codec : new ChunkCodec[]{ChunkCodecs.RAW, ChunkCodecs.DEFLATE}) {
+            assertSame(codec, ChunkCodecs.get(codec.getId()));
+            for (byte[] data : new byte[][]{new byte[0], new byte[]{5}, repetitive, random, mixed}) {
+                byte[] encoded = codec.encode(data, 0, data.length);
+                assertArrayEquals(data, codec.decode(encoded, 0, encoded.length), codec.getName());
+            }
+        }
+    }
+
+    @Test
+    void runLengthRoundTrip() throws IOException {
+        assertSame(ChunkCodecs.RLE, ChunkCodecs.get(ChunkCodecs.RLE.getId()));
+        Random random = new Random(42);
+        long[] noisy = new long[BLOCK_COUNT / 8];
+        for (int i = 0; i < noisy.length; i++) {
+            noisy[i] = random.nextLong() & 0x0303030303030303L;
+        }
+        long[] layered = new long[BLOCK_COUNT / 8];
+        for (int i = 0; i < layered.length; i++) {
+            layered[i] = i < layered.length / 2 ? 0x0101010101010101L : 0;
+        }
+        for (long[] rawIds : new long[][]{new long[BLOCK_COUNT / 8], noisy, layered}) {
+            byte[] data = chunkData(rawIds);
+            byte[] encoded = ChunkCodecs.RLE.encode(data, 0, data.length);
+            // The palette may be in another order, so the block ids are compared instead of the bytes
+            CubicChunk expected = readChunk(data);
+            CubicChunk decoded = readChunk(ChunkCodecs.RLE.decode(encoded, 0, encoded.length));
+            assertEquals(expected.isAirChunk(), decoded.isAirChunk());
+            if (expected.isAirChunk()) {
+                continue;
+            }
+            for (int x = 0; x < CHUNK_X_SIZE; x++) {
+                for (int y = 0; y < CHUNK_Y_SIZE; y++) {
+                    for (int z = 0; z < CHUNK_Z_SIZE; z++) {
+                        assertEquals(expected.getBlockId(x, y, z), decoded.getBlockId(x, y, z));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void compress() throws IOException {
+        byte[] repetitive = new byte[32768];
+        assertTrue(ChunkCodecs.DEFLATE.encode(repetitive, 0, repetitive.length).length < repetitive.length / 50);
+
+        long[] layered = new long[BLOCK_COUNT / 8];
+        for (int i = 0; i < layered.length / 2; i++) {
+            layered[i] = 0x0101010101010101L;
+        }
+        byte[] data = chunkData(layered);
+        assertEquals(10, ChunkCodecs.RLE.encode(data, 0, data.length).length);
+    }
+
+    @Test
+    void register() {
+        ChunkCodec codec = new ChunkCodec() {
+            @Override
+            public int getId() {
+                return 200;
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public byte[] encode(byte[] data, int offset, int length) {
+                return data;
+            }
+
+            @Override
+            public byte[] decode(byte[] data, int offset, int length) {
+                return data;
+            }
+        };
+        assertNull(ChunkCodecs.get(200));
+        ChunkCodecs.register(codec);
+        assertSame(codec, ChunkCodecs.get(200));
+        assertThrows(IllegalArgumentException.class, () -> ChunkCodecs.register(new ChunkCodec() {
+            @Override
+            public int getId() {
+                return 1;
+            }
+
+            @Override
+            public String getName() {
+                return "other";
+            }
+
+            @Override
+            public byte[] encode(byte[] data, int offset, int length) {
+                return data;
+            }
+
+            @Override
+            public byte[] decode(byte[] data, int offset, int length) {
+                return data;
+            }
+        }));
+    }
+
+    private static CubicChunk readChunk(byte[] data) throws IOException {
+        CubicChunk chunk = new CubicChunk(null, 0, 0, 0);
+        chunk.read(new DataInputStream(new ByteArrayInputStream(data)));
+        return chunk;
+    }
+
+    /**
+     * @return the data of a chunk with the raw block ids of 8 bits per entry, written in the current format
+     */
+    private static byte[] chunkData(long[] rawIds) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeShort(1);
+        for (long value : rawIds) {
+            dataOutput.writeLong(value);
+        }
+        CubicChunk chunk = new CubicChunk(null, 0, 0, 0);
+        chunk.read(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+        output.reset();
+        chunk.write(dataOutput);
+        return output.toByteArray();
+    }
+}
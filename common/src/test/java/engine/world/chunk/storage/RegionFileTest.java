@@ -7,9 +7,14 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Map;
 
+import static engine.world.chunk.storage.RegionConstants.getChunkIndexInRegion;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class RegionFileTest {
 
@@ -59,4 +64,68 @@ class RegionFileTest {
         assertArrayEquals(twoSectorData, regionFile.read(15, 0, 0));
         assertArrayEquals(oneAndHalfSectorData, regionFile.read(0, 15, 0));
     }
-}
\ No newline at end of file
+
+    @Test
+    void writeAllAndReopen() throws IOException {
+        File file = new File(tempDir, "region_batch.dat");
+        try (RegionFile batchFile = new RegionFile(file)) {
+            batchFile.writeAll(Map.of(
+                    getChunkIndexInRegion(1, 0, 0), ByteBuffer.wrap(oneSectorData),
+                    getChunkIndexInRegion(2, 0, 0), ByteBuffer.wrap(twoSectorData),
+                    getChunkIndexInRegion(3, 0, 0), ByteBuffer.wrap(oneAndHalfSectorData)));
+            batchFile.write(1, 0, 0, twoSectorData, twoSectorData.length);
+        }
+
+        try (RegionFile reopened = new RegionFile(file)) {
+            assertArrayEquals(twoSectorData, reopened.read(1, 0, 0));
+            assertArrayEquals(twoSectorData, reopened.read(2, 0, 0));
+            assertArrayEquals(oneAndHalfSectorData, reopened.read(3, 0, 0));
+            assertNull(reopened.read(4, 0, 0));
+
+            reopened.write(4, 0, 0, oneSectorData, oneSectorData.length);
+            assertArrayEquals(oneSectorData, reopened.read(4, 0, 0));
+            assertArrayEquals(twoSectorData, reopened.read(2, 0, 0));
+        }
+    }
+
+    @Test
+    void readOtherCodec() throws IOException {
+        File file = new File(tempDir, "region_codec.dat");
+        try (RegionFile rawFile = new RegionFile(file, ChunkCodecs.RAW)) {
+            rawFile.write(0, 0, 0, oneSectorData, oneSectorData.length);
+        }
+
+        try (RegionFile deflateFile = new RegionFile(file, ChunkCodecs.DEFLATE)) {
+            assertArrayEquals(oneSectorData, deflateFile.read(0, 0, 0));
+            deflateFile.write(1, 0, 0, twoSectorData, twoSectorData.length);
+        }
+
+        // The codec of each chunk is taken from the header, whatever the codec of the file
+        try (RegionFile rleFile = new RegionFile(file, ChunkCodecs.RLE)) {
+            assertArrayEquals(oneSectorData, rleFile.read(0, 0, 0));
+            assertArrayEquals(twoSectorData, rleFile.read(1, 0, 0));
+        }
+    }
+
+    @Test
+    void rewriteKeepsOtherChunks() throws IOException {
+        File file = new File(tempDir, "region_rewrite.dat");
+        try (RegionFile rewriteFile = new RegionFile(file, ChunkCodecs.RAW)) {
+            rewriteFile.writeAll(Map.of(
+                    getChunkIndexInRegion(1, 0, 0), ByteBuffer.wrap(oneSectorData),
+                    getChunkIndexInRegion(2, 0, 0), ByteBuffer.wrap(twoSectorData)));
+            // The chunks swap sizes, so each is written to free sectors before the old ones are freed
+            rewriteFile.writeAll(Map.of(
+                    getChunkIndexInRegion(1, 0, 0), ByteBuffer.wrap(twoSectorData),
+                    getChunkIndexInRegion(2, 0, 0), ByteBuffer.wrap(oneSectorData)));
+            assertArrayEquals(twoSectorData, rewriteFile.read(1, 0, 0));
+            assertArrayEquals(oneSectorData, rewriteFile.read(2, 0, 0));
+        }
+
+        RegionFile reopened = new RegionFile(file, ChunkCodecs.RAW);
+        assertArrayEquals(twoSectorData, reopened.read(1, 0, 0));
+        assertArrayEquals(oneSectorData, reopened.read(2, 0, 0));
+        reopened.close();
+        assertThrows(IOException.class, () -> reopened.read(1, 0, 0));
+    }
+}
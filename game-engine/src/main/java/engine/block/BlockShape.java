@@ -29,6 +29,12 @@ public interface BlockShape {
 
     AABBd[] getBoundingBoxes(World world, BlockPos pos, Block block);
 
+    /**
+     * @return whether the bounding boxes are the same wherever the block is, i.e.
+     * {@link #getBoundingBoxes(World, BlockPos, Block)} returns {@link #getBoundingBoxes()}, so they can be cached by block
+     */
+    boolean isStatic();
+
     boolean intersectRay(World world, BlockPos pos, Block block, double originX, double originY, double originZ, double dirX, double dirY, double dirZ, Vector2d result);
 
     boolean intersectRay(World world, BlockPos pos, Block block, Rayd ray, Vector2d result);
@@ -51,6 +57,11 @@ public interface BlockShape {
             return getBoundingBoxes();
         }
 
+        @Override
+        public boolean isStatic() {
+            return true;
+        }
+
         @Override
         public boolean intersectRay(World world, BlockPos pos, Block block, double originX, double originY, double originZ, double dirX, double dirY, double dirZ, Vector2d result) {
             AABBd[] boundingBoxes = getBoundingBoxes(world, pos, block);
@@ -18,6 +18,7 @@ public final class DisplaySettings {
     private boolean vSync = false;
     private int uiScale = 100;
     private int hudScale = 100;
+    private boolean greedyMeshing = true;
 
     public DisplayMode getDisplayMode() {
         return displayMode;
@@ -75,6 +76,17 @@ public final class DisplaySettings {
         this.hudScale = hudScale;
     }
 
+    public boolean isGreedyMeshing() {
+        return greedyMeshing;
+    }
+
+    /**
+     * Whether the faces of full cube blocks are merged when chunks are baked. Applies to the chunks baked afterwards.
+     */
+    public void setGreedyMeshing(boolean greedyMeshing) {
+        this.greedyMeshing = greedyMeshing;
+    }
+
     public void load(Config config) {
         try {
             displayMode = DisplayMode.valueOf(config.getString("display_mode", "windowed").toUpperCase());
@@ -86,6 +98,7 @@ public final class DisplaySettings {
         frameRate = config.getInt("frame_rate", 60);
         uiScale = config.getInt("ui_scale", 100);
         hudScale = config.getInt("hud_scale", 100);
+        greedyMeshing = config.getBoolean("greedy_meshing", true);
     }
 
     public Map<String, Object> save() {
@@ -96,6 +109,7 @@ public final class DisplaySettings {
         config.set("frame_rate", frameRate);
         config.set("ui_scale", uiScale);
         config.set("hud_scale", hudScale);
+        config.set("greedy_meshing", greedyMeshing);
         return config.getRoot();
     }
 
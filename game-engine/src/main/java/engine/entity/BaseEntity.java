@@ -2,6 +2,7 @@ package engine.entity;
 
 import engine.component.Component;
 import engine.component.ComponentAgent;
+import engine.entity.component.EntityComponentStore;
 import engine.world.World;
 import org.joml.AABBd;
 import org.joml.Vector3d;
@@ -16,7 +17,11 @@ import java.util.UUID;
 
 public abstract class BaseEntity implements Entity {
 
-    private final ComponentAgent components;
+    private ComponentAgent components;
+    /**
+     * The store of the entity manager holding the components whilst this entity is spawned, if it has one.
+     */
+    private EntityComponentStore componentStore;
 
     protected final EntityProvider provider;
 
@@ -112,33 +117,64 @@ public abstract class BaseEntity implements Entity {
         return motion;
     }
 
+    /**
+     * Move the components of this entity into the given store, or back out of the current store if null. Called by the
+     * entity manager when this entity is spawned and destroyed.
+     */
+    @SuppressWarnings("unchecked")
+    public void setComponentStore(@Nullable EntityComponentStore componentStore) {
+        if (this.componentStore == componentStore) {
+            return;
+        }
+        if (this.componentStore != null) {
+            components = new ComponentAgent();
+            this.componentStore.removeAll(this).forEach((type, component) ->
+                    components.setComponent((Class<Component>) type, component));
+        }
+        if (componentStore != null) {
+            for (Class<?> type : components.getComponents()) {
+                componentStore.set(this, (Class<Component>) type, components.getComponent((Class<Component>) type).orElse(null));
+            }
+            components = null;
+        }
+        this.componentStore = componentStore;
+    }
+
     @Nonnull
     @Override
     public <C extends Component> Optional<C> getComponent(@Nonnull Class<C> type) {
-        return components.getComponent(type);
+        return componentStore != null ? componentStore.get(this, type) : components.getComponent(type);
     }
 
     @Override
     public <C extends Component> boolean hasComponent(@Nonnull Class<C> type) {
-        return components.hasComponent(type);
+        return componentStore != null ? componentStore.has(this, type) : components.hasComponent(type);
     }
 
     @Override
     public <C extends Component> Entity setComponent(@Nonnull Class<C> type, @Nullable C value) {
-        components.setComponent(type, value);
+        if (componentStore != null) {
+            componentStore.set(this, type, value);
+        } else {
+            components.setComponent(type, value);
+        }
         return this;
     }
 
     @Override
     public <C extends Component> Entity removeComponent(@Nonnull Class<C> type) {
-        components.removeComponent(type);
+        if (componentStore != null) {
+            componentStore.remove(this, type);
+        } else {
+            components.removeComponent(type);
+        }
         return this;
     }
 
     @Nonnull
     @Override
     public Set<Class<?>> getComponents() {
-        return components.getComponents();
+        return componentStore != null ? componentStore.getTypes(this) : components.getComponents();
     }
 
     @Override
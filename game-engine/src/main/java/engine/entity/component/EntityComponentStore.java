@@ -0,0 +1,225 @@
+package engine.entity.component;
+
+import engine.component.Component;
+import engine.entity.Entity;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Stores the components of the entities of a world grouped by type, in dense arrays indexed through the entity ids. The
+ * entities having some components can be iterated without visiting the others, e.g.
+ * {@code store.forEach(TwoHands.class, Controller.class, (entity, twoHands, controller) -> ...)}.
+ * <p>
+ * Components of the visited types must not be set or removed whilst iterating.
+ */
+@NotThreadSafe
+public final class EntityComponentStore {
+
+    private final Reference2ObjectMap<Class<?>, ComponentArray> arrays = new Reference2ObjectOpenHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <C extends Component> Optional<C> get(@Nonnull Entity entity, @Nonnull Class<C> type) {
+        ComponentArray array = arrays.get(type);
+        return array == null ? Optional.empty() : Optional.ofNullable((C) array.get(entity.getId()));
+    }
+
+    public boolean has(@Nonnull Entity entity, @Nonnull Class<?> type) {
+        ComponentArray array = arrays.get(type);
+        return array != null && array.get(entity.getId()) != null;
+    }
+
+    public <C extends Component> void set(@Nonnull Entity entity, @Nonnull Class<C> type, @Nullable C value) {
+        if (value == null) {
+            remove(entity, type);
+            return;
+        }
+        ComponentArray array = arrays.get(type);
+        if (array == null) {
+            array = new ComponentArray();
+            arrays.put(type, array);
+        }
+        array.set(entity, value);
+    }
+
+    public void remove(@Nonnull Entity entity, @Nonnull Class<?> type) {
+        ComponentArray array = arrays.get(type);
+        if (array != null) {
+            array.remove(entity.getId());
+        }
+    }
+
+    /**
+     * Remove all components of the entity, e.g. when it is destroyed.
+     *
+     * @return the removed components by type
+     */
+    public Map<Class<?>, Component> removeAll(@Nonnull Entity entity) {
+        Map<Class<?>, Component> removed = new HashMap<>();
+        for (Reference2ObjectMap.Entry<Class<?>, ComponentArray> entry : arrays.reference2ObjectEntrySet()) {
+            Component component = entry.getValue().remove(entity.getId());
+            if (component != null) {
+                removed.put(entry.getKey(), component);
+            }
+        }
+        return removed;
+    }
+
+    @Nonnull
+    public Set<Class<?>> getTypes(@Nonnull Entity entity) {
+        Set<Class<?>> types = new HashSet<>();
+        for (Reference2ObjectMap.Entry<Class<?>, ComponentArray> entry : arrays.reference2ObjectEntrySet()) {
+            if (entry.getValue().get(entity.getId()) != null) {
+                types.add(entry.getKey());
+            }
+        }
+        return types;
+    }
+
+    /**
+     * @return the number of entities having the component
+     */
+    public int count(@Nonnull Class<?> type) {
+        ComponentArray array = arrays.get(type);
+        return array == null ? 0 : array.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <A extends Component> void forEach(@Nonnull Class<A> type, @Nonnull BiConsumer<Entity, ? super A> visitor) {
+        ComponentArray array = arrays.get(type);
+        if (array == null) {
+            return;
+        }
+        Entity[] entities = array.entities;
+        Component[] components = array.components;
+        for (int i = 0, size = array.size; i < size; i++) {
+            visitor.accept(entities[i], (A) components[i]);
+        }
+    }
+
+    /**
+     * Visit the entities having both components. Iterates the type with fewer entities.
+     */
+    @SuppressWarnings("unchecked")
+    public <A extends Component, B extends Component> void forEach(@Nonnull Class<A> typeA, @Nonnull Class<B> typeB,
+                                                                   @Nonnull BiComponentVisitor<? super A, ? super B> visitor) {
+        ComponentArray arrayA = arrays.get(typeA);
+        ComponentArray arrayB = arrays.get(typeB);
+        if (arrayA == null || arrayB == null) {
+            return;
+        }
+        boolean iterateA = arrayA.size <= arrayB.size;
+        ComponentArray iterated = iterateA ? arrayA : arrayB;
+        ComponentArray other = iterateA ? arrayB : arrayA;
+        Entity[] entities = iterated.entities;
+        Component[] components = iterated.components;
+        for (int i = 0, size = iterated.size; i < size; i++) {
+            Component otherComponent = other.get(entities[i].getId());
+            if (otherComponent != null) {
+                if (iterateA) {
+                    visitor.visit(entities[i], (A) components[i], (B) otherComponent);
+                } else {
+                    visitor.visit(entities[i], (A) otherComponent, (B) components[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit the entities having all of the components. Iterates the type with the fewest entities.
+     */
+    public void forEachWith(@Nonnull Consumer<? super Entity> visitor, @Nonnull Class<?>... types) {
+        if (types.length == 0) {
+            return;
+        }
+        ComponentArray[] selected = new ComponentArray[types.length];
+        int smallest = 0;
+        for (int i = 0; i < types.length; i++) {
+            selected[i] = arrays.get(types[i]);
+            if (selected[i] == null) {
+                return;
+            }
+            if (selected[i].size < selected[smallest].size) {
+                smallest = i;
+            }
+        }
+        ComponentArray iterated = selected[smallest];
+        Entity[] entities = iterated.entities;
+        outer:
+        for (int i = 0, size = iterated.size; i < size; i++) {
+            int id = entities[i].getId();
+            for (int j = 0; j < selected.length; j++) {
+                if (j != smallest && selected[j].get(id) == null) {
+                    continue outer;
+                }
+            }
+            visitor.accept(entities[i]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface BiComponentVisitor<A, B> {
+        void visit(Entity entity, A a, B b);
+    }
+
+    /**
+     * The components of one type with their entities at the same indices. Removal moves the last component into the
+     * hole, so that the arrays stay dense.
+     */
+    private static final class ComponentArray {
+        private final Int2IntMap idToIndex = new Int2IntOpenHashMap();
+        private Entity[] entities = new Entity[16];
+        private Component[] components = new Component[16];
+        private int size;
+
+        ComponentArray() {
+            idToIndex.defaultReturnValue(-1);
+        }
+
+        Component get(int id) {
+            int index = idToIndex.get(id);
+            return index == -1 ? null : components[index];
+        }
+
+        void set(Entity entity, Component component) {
+            int index = idToIndex.get(entity.getId());
+            if (index != -1) {
+                components[index] = component;
+                return;
+            }
+            if (size == entities.length) {
+                entities = Arrays.copyOf(entities, size << 1);
+                components = Arrays.copyOf(components, size << 1);
+            }
+            entities[size] = entity;
+            components[size] = component;
+            idToIndex.put(entity.getId(), size);
+            size++;
+        }
+
+        Component remove(int id) {
+            int index = idToIndex.remove(id);
+            if (index == -1) {
+                return null;
+            }
+            Component removed = components[index];
+            int last = --size;
+            if (index != last) {
+                entities[index] = entities[last];
+                components[index] = components[last];
+                idToIndex.put(entities[index].getId(), index);
+            }
+            entities[last] = null;
+            components[last] = null;
+            return removed;
+        }
+    }
+}
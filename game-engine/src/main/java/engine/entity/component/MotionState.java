@@ -0,0 +1,37 @@
+package engine.entity.component;
+
+import engine.component.Component;
+import engine.entity.Entity;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The position and motion of a spawned entity, set in the {@link EntityComponentStore} of its world so that the motion
+ * passes walk a dense array instead of the entity set. Shares the vectors of the entity, so it stays up to date.
+ */
+public final class MotionState implements Component {
+
+    private final Vector3d position;
+    private final Vector3f motion;
+
+    public MotionState(@Nonnull Entity entity) {
+        this.position = entity.getPosition();
+        this.motion = entity.getMotion();
+    }
+
+    @Nonnull
+    public Vector3d getPosition() {
+        return position;
+    }
+
+    @Nonnull
+    public Vector3f getMotion() {
+        return motion;
+    }
+
+    public boolean isMoving() {
+        return motion.x != 0 || motion.y != 0 || motion.z != 0;
+    }
+}
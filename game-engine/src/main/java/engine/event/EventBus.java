@@ -11,6 +11,12 @@ public interface EventBus {
      */
     boolean post(Event event);
 
+    /**
+     * Check whether any listener would receive the events of the type, so that posting them can be skipped, e.g.
+     * {@code if (bus.hasListeners(EntityTickEvent.class)) bus.post(new EntityTickEvent(entity));}
+     */
+    boolean hasListeners(Class<? extends Event> eventType);
+
     /**
      * Register listeners.
      */
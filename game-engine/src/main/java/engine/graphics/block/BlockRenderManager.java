@@ -1,11 +1,13 @@
 package engine.graphics.block;
 
 import engine.block.Block;
+import engine.graphics.texture.TextureAtlasRegion;
 import engine.graphics.vertex.VertexDataBuf;
 import engine.math.BlockPos;
 import engine.util.Direction;
 import engine.world.BlockGetter;
 
+import javax.annotation.Nullable;
 import java.util.function.Supplier;
 
 public interface BlockRenderManager {
@@ -18,6 +20,25 @@ public interface BlockRenderManager {
 
     void generateMesh(Block block, VertexDataBuf buffer);
 
+    /**
+     * Generate the mesh of the block with the faces covered by its neighbours already known, e.g. from a snapshot.
+     *
+     * @param coveredFace {@link engine.graphics.model.ModelUtils#toDirectionInt(Direction...)}
+     */
+    void generateMesh(Block block, int x, int y, int z, int coveredFace, VertexDataBuf buffer);
+
+    /**
+     * @return whether the face of the block covers the whole side of its cell, hiding the face of the neighbour behind it
+     */
+    boolean isFullFace(Block block, Direction direction);
+
+    /**
+     * @return the texture of the face if the block is rendered as a full cube of whole textures, otherwise null
+     * @see engine.graphics.model.BakedModel#getCubeFaceTexture(Direction)
+     */
+    @Nullable
+    TextureAtlasRegion getCubeFaceTexture(Block block, Direction direction);
+
     static BlockRenderManager instance() {
         return BlockRenderManager.Internal.instance.get();
     }
@@ -1,9 +1,12 @@
 package engine.graphics.model;
 
 import engine.graphics.math.Transform;
+import engine.graphics.texture.TextureAtlasRegion;
 import engine.graphics.vertex.VertexDataBuf;
 import engine.util.Direction;
 
+import javax.annotation.Nullable;
+
 public interface BakedModel {
 
     /**
@@ -14,5 +17,14 @@ public interface BakedModel {
 
     boolean isFullFace(Direction direction);
 
+    /**
+     * @return the texture covering the whole face if the model is a unit cube whose faces are each covered by one
+     * whole texture, so that the faces of neighbouring blocks can be merged, otherwise null
+     */
+    @Nullable
+    default TextureAtlasRegion getCubeFaceTexture(Direction direction) {
+        return null;
+    }
+
     Transform getTransformation(DisplayType type);
 }
@@ -1,27 +1,48 @@
 package engine.logic;
 
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a task at a fixed rate. The deadline of each tick is a multiple of the interval from the start, so that the
+ * rate does not drift with the time spent in each tick.
+ * <p>
+ * Without a dynamic task, the ticker parks the thread until the next deadline instead of spinning. With a dynamic
+ * task, e.g. rendering, the dynamic task is run between the ticks as often as possible.
+ */
 public class Ticker implements Runnable {
 
     public static final int LOGIC_TICK = 20;
     public static final int CLIENT_TICK = 20; // 暂时用常量
 
+    /**
+     * The maximum number of late ticks run back to back to catch up, the ticks later than that are skipped.
+     */
+    public static final int MAX_CATCH_UP_TICKS = 10;
+
+    /**
+     * Parking may overshoot by the granularity of the OS scheduler, so spin for the last part of the wait.
+     */
+    private static final long SPIN_NANOS = 500_000L;
+
+    private static final int STATS_WINDOW = 100;
+
     protected final Tickable fixed;
     protected final Tickable.Partial dynamic;
     protected final int tickPerSecond;
     protected final double interval;
+    protected final long intervalNanos;
+
+    protected volatile boolean stopped = false;
 
-    protected boolean stopped = false;
+    private final long[] tickTimes = new long[STATS_WINDOW];
+    private long tickTimeSum;
+    private volatile long tickCount;
+    private volatile long lastTickTime;
+    private volatile long overrunCount;
+    private volatile long skippedTickCount;
 
     public Ticker(Tickable task, int tickPerSecond) {
-        this.fixed = task;
-        this.dynamic = partial -> {
-            try {
-                Thread.sleep((long) ((getInterval() - partial / tickPerSecond) * 1000));
-            } catch (InterruptedException ignored) {
-            }
-        };
-        this.tickPerSecond = tickPerSecond;
-        this.interval = 1D / tickPerSecond;
+        this(task, null, tickPerSecond);
     }
 
     public Ticker(Tickable task, Tickable.Partial dynamic, int tickPerSecond) {
@@ -29,6 +50,7 @@ public class Ticker implements Runnable {
         this.dynamic = dynamic;
         this.tickPerSecond = tickPerSecond;
         this.interval = 1D / tickPerSecond;
+        this.intervalNanos = 1_000_000_000L / tickPerSecond;
     }
 
     public void stop() {
@@ -50,24 +72,98 @@ public class Ticker implements Runnable {
         return System.nanoTime() / 1e9D;
     }
 
+    /**
+     * @return the number of ticks run
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * @return the duration of the last tick in nanoseconds
+     */
+    public long getLastTickTime() {
+        return lastTickTime;
+    }
+
+    /**
+     * @return the average duration of the last {@value #STATS_WINDOW} ticks in milliseconds
+     */
+    public double getMspt() {
+        long count = Math.min(tickCount, STATS_WINDOW);
+        synchronized (tickTimes) {
+            return count == 0 ? 0 : tickTimeSum / (count * 1e6D);
+        }
+    }
+
+    /**
+     * @return the number of ticks which took longer than the interval
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * @return the number of ticks skipped because the ticker was too far behind to catch up
+     */
+    public long getSkippedTickCount() {
+        return skippedTickCount;
+    }
+
     public void run() {
-        double previous = getCurrentTime();
-        double lag = 0D;
+        long nextTick = System.nanoTime();
         while (!stopped) {
-            double current = getCurrentTime();
-
-            double elapsed = current - previous;
-            previous = current;
-            lag += elapsed;
+            long current = System.nanoTime();
+            int lateTicks = 0;
+            while (current - nextTick >= 0 && !stopped) {
+                if (lateTicks == MAX_CATCH_UP_TICKS) {
+                    long skipped = (current - nextTick) / intervalNanos + 1;
+                    skippedTickCount += skipped;
+                    nextTick += skipped * intervalNanos;
+                    break;
+                }
+                tick();
+                lateTicks++;
+                nextTick += intervalNanos;
+                current = System.nanoTime();
+            }
 
-            while (lag >= interval && !stopped) {
-                fixed.tick();
-                lag -= interval;
+            if (stopped) {
+                break;
             }
 
-            if (!stopped) {
-                dynamic.tick((float) (lag * tickPerSecond));
+            if (dynamic != null) {
+                dynamic.tick(1F - (float) (nextTick - current) / intervalNanos);
+            } else {
+                waitUntil(nextTick);
             }
         }
     }
+
+    private void tick() {
+        long start = System.nanoTime();
+        fixed.tick();
+        long time = System.nanoTime() - start;
+
+        synchronized (tickTimes) {
+            int index = (int) (tickCount % STATS_WINDOW);
+            tickTimeSum += time - tickTimes[index];
+            tickTimes[index] = time;
+        }
+        lastTickTime = time;
+        if (time > intervalNanos) {
+            overrunCount++;
+        }
+        tickCount++;
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS && !stopped) {
+            LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+        }
+        while (deadline - System.nanoTime() > 0 && !stopped) {
+            Thread.onSpinWait();
+        }
+    }
 }
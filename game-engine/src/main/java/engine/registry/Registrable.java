@@ -35,7 +35,11 @@ public interface Registrable<T> {
         };
         private Name name;
 
-//        private int id;
+        /**
+         * The id in the registry which this object is registered to, set by the registry and remapped when the
+         * registry is synchronized.
+         */
+        private int id;
 
         @SuppressWarnings("unchecked")
         @Override
@@ -63,9 +67,8 @@ public interface Registrable<T> {
             return (T) this;
         }
 
-//        @Override
-//        public final int getId() {
-//            return id;
-//        }
+        public final int getId() {
+            return id;
+        }
     }
 }
@@ -3,10 +3,15 @@ package engine.registry.impl;
 import engine.registry.Name;
 import engine.registry.Registrable;
 import engine.registry.RegistrationException;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.lang.reflect.Array;
+import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -38,9 +43,12 @@ public abstract class IdRegistry<T extends Registrable<T>> extends BaseRegistry<
         return super.register(obj);
     }
 
+    /**
+     * Read the id cached on the object, so that the hot paths do not hash its name.
+     */
     @Override
     public int getId(T obj) {
-        return obj != null ? nameToId.getOrDefault(obj.getName().getUniqueName(), 0) : -1;
+        return obj != null ? ((Registrable.Impl<?>) obj).getId() : -1;
     }
 
     @Override
@@ -68,16 +76,16 @@ public abstract class IdRegistry<T extends Registrable<T>> extends BaseRegistry<
         return nameToObject.entrySet();
     }
 
-//    private static Field idField;
-//
-//    static {
-//        try {
-//            idField = Registrable.Impl.class.getDeclaredField("id");
-//            idField.setAccessible(true);
-//        } catch (NoSuchFieldException e) {
-//            throw new Error("Failed to initialize idField", e);
-//        }
-//    }
+    private static Field idField;
+
+    static {
+        try {
+            idField = Registrable.Impl.class.getDeclaredField("id");
+            idField.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new Error("Failed to initialize idField", e);
+        }
+    }
 
     protected void ensureCapacity(int capacity) {
         int oldLength = idToObject.length;
@@ -94,11 +102,41 @@ public abstract class IdRegistry<T extends Registrable<T>> extends BaseRegistry<
     }
 
     protected void setIdUnsafe(T entry, int id) {
-//        try {
-//            idField.setInt(entry, id);
-//        } catch (IllegalAccessException e) {
-//            throw new RegistrationException("Failed to set id.", e);
-//        }
+        try {
+            idField.setInt(entry, id);
+        } catch (IllegalAccessException e) {
+            throw new RegistrationException("Failed to set id.", e);
+        }
         idToObject[id] = entry;
     }
+
+    /**
+     * Replace the ids of all entries, updating the ids cached on the entries. The names absent from the mapping keep
+     * their current ids.
+     *
+     * @throws RegistrationException if two entries would share an id, in which case no id is changed
+     */
+    @SuppressWarnings("unchecked")
+    protected void remapIds(Map<String, Integer> mapping) {
+        Object2IntMap<T> newIds = new Object2IntOpenHashMap<>(nameToObject.size());
+        Int2ObjectMap<String> idToName = new Int2ObjectOpenHashMap<>(nameToObject.size());
+        int length = idToObject.length;
+        for (Map.Entry<String, T> entry : nameToObject.entrySet()) {
+            Integer id = mapping.get(entry.getKey());
+            int newId = id != null ? id : getId(entry.getValue());
+            if (newId < 0) {
+                throw new RegistrationException(String.format("Invalid id %d of %s", newId, entry.getKey()));
+            }
+            String other = idToName.put(newId, entry.getKey());
+            if (other != null) {
+                throw new RegistrationException(String.format("%s and %s are both mapped to id %d", other, entry.getKey(), newId));
+            }
+            newIds.put(entry.getValue(), newId);
+            length = Math.max(length, newId + 1);
+        }
+        idToObject = (T[]) Array.newInstance(getEntryType(), length);
+        for (Object2IntMap.Entry<T> entry : newIds.object2IntEntrySet()) {
+            setIdUnsafe(entry.getKey(), entry.getIntValue());
+        }
+    }
 }
@@ -17,28 +17,24 @@ public class SynchronizableIdRegistry<T extends Registrable<T>> extends IdAutoIn
 
     private final Map<String, Integer> syncedMapping = new HashMap<>();
 
-    @Override
-    public int getId(T obj) {
-        if (!syncedMapping.isEmpty()) {
-            return syncedMapping.get(obj.getName().getUniqueName());
-        }
-        return getIntrinsicId(obj);
-    }
-
     @Override
     public int getIntrinsicId(T obj) {
-        return super.getId(obj);
+        return obj != null ? nameToId.getOrDefault(obj.getName().getUniqueName(), 0) : -1;
     }
 
     @Override
     public void sync(Map<String, Integer> map) {
         if (getEntries().size() != map.size())
             throw new IllegalArgumentException("Sync map size does not match with size of registered objects");
+        Map<String, Integer> mapping = new HashMap<>(syncedMapping);
+        mapping.putAll(map);
+        remapIds(mapping);
         syncedMapping.putAll(map);
     }
 
     @Override
     public void unsync() {
         syncedMapping.clear();
+        remapIds(nameToId);
     }
 }
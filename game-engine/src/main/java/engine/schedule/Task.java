@@ -2,7 +2,18 @@ package engine.schedule;
 
 public abstract class Task {
 
-    private boolean cancelled = false;
+    private volatile boolean cancelled = false;
+
+    /**
+     * The number of ticks between two runs, or 0 if the task does not repeat.
+     */
+    volatile long period;
+    /**
+     * The delay requested by {@link #delay(long)}, or -1 if none.
+     */
+    volatile long nextDelay = -1;
+    long targetTick;
+    long rounds;
 
     public abstract void run();
 
@@ -14,12 +25,19 @@ public abstract class Task {
         return cancelled;
     }
 
+    /**
+     * Stop repeating the task. The task is not run again after the current run.
+     */
     public void stop() {
-
+        period = 0;
     }
 
+    /**
+     * Postpone the next run of the task by the given number of ticks, counted from the tick this is handled on. If the
+     * task is running, it is run again after the delay even if it does not repeat.
+     */
     public void delay(long delay) {
-
+        nextDelay = Math.max(1, delay);
     }
 
     public static final class Next {
@@ -1,4 +1,24 @@
 package engine.schedule;
 
-public interface TickedScheduler {
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A scheduler whose delays and periods are counted in ticks. The tasks are run on the thread calling {@link #tick()},
+ * whilst they can be scheduled from any thread.
+ */
+public interface TickedScheduler extends Scheduler {
+
+    /**
+     * Run the tasks due in the next tick. Must only be called from the tick thread.
+     */
+    void tick();
+
+    long getCurrentTick();
+
+    /**
+     * Run the callable on the worker pool, and complete the returned future with its result on the tick thread, so
+     * that the dependent actions added before completion run on the tick thread.
+     */
+    <V> CompletableFuture<V> scheduleAsyncTask(Callable<V> callable);
 }
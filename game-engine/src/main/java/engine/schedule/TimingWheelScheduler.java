@@ -0,0 +1,239 @@
+package engine.schedule;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import engine.Platform;
+import engine.util.LazyObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * A {@link TickedScheduler} backed by a hashed timing wheel, so that scheduling a delayed or repeating task is O(1)
+ * regardless of the delay. Each slot of the wheel holds the tasks due in the ticks congruent to its index, and the
+ * tasks due in a later turn of the wheel wait there for the remaining rounds.
+ * <p>
+ * The tasks scheduled from any thread go through a concurrent queue, which is drained into the wheel at the beginning
+ * of each tick.
+ */
+public class TimingWheelScheduler implements TickedScheduler {
+
+    public static final LazyObject<ExecutorService> ASYNC_TASK_POOL = new LazyObject<>(() ->
+            Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                    new ThreadFactoryBuilder().setNameFormat("Async Task #%d").setDaemon(true).build()));
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    @SuppressWarnings("unchecked")
+    private final List<Task>[] wheel = new List[WHEEL_SIZE];
+    private final Queue<Task> scheduledTasks = new ConcurrentLinkedQueue<>();
+    private final Executor asyncExecutor;
+
+    private volatile long currentTick;
+
+    public TimingWheelScheduler() {
+        this(ASYNC_TASK_POOL.get());
+    }
+
+    public TimingWheelScheduler(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+    }
+
+    @Override
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    @Override
+    public void tick() {
+        long tick = ++currentTick;
+
+        Task task;
+        while ((task = scheduledTasks.poll()) != null) {
+            place(task, Math.max(task.targetTick, tick), tick - 1);
+        }
+
+        int index = (int) (tick & WHEEL_MASK);
+        List<Task> tasks = wheel[index];
+        if (tasks.isEmpty()) {
+            return;
+        }
+        // Tasks rescheduled whilst running may land in this slot again
+        wheel[index] = new ArrayList<>();
+        for (Task dueTask : tasks) {
+            if (dueTask.isCancelled()) {
+                continue;
+            }
+            if (dueTask.rounds > 0) {
+                dueTask.rounds--;
+                wheel[index].add(dueTask);
+                continue;
+            }
+            if (reschedule(dueTask, tick)) {
+                continue;
+            }
+            try {
+                dueTask.run();
+            } catch (RuntimeException e) {
+                Platform.getLogger().error("Exception thrown in scheduled task", e);
+            }
+            if (!dueTask.isCancelled() && !reschedule(dueTask, tick) && dueTask.period > 0) {
+                place(dueTask, tick + dueTask.period, tick);
+            }
+        }
+    }
+
+    private boolean reschedule(Task task, long tick) {
+        long delay = task.nextDelay;
+        if (delay < 0) {
+            return false;
+        }
+        task.nextDelay = -1;
+        place(task, tick + delay, tick);
+        return true;
+    }
+
+    /**
+     * @param processedTick the last tick whose slot has been processed
+     */
+    private void place(Task task, long targetTick, long processedTick) {
+        task.targetTick = targetTick;
+        task.rounds = (targetTick - processedTick - 1) >> WHEEL_BITS;
+        wheel[(int) (targetTick & WHEEL_MASK)].add(task);
+    }
+
+    private <T extends Task> T enqueue(T task, long delay, long period) {
+        task.targetTick = currentTick + Math.max(1, delay);
+        task.period = Math.max(0, period);
+        scheduledTasks.add(task);
+        return task;
+    }
+
+    @Override
+    public void scheduleTask(Task task) {
+        enqueue(task, 1, 0);
+    }
+
+    @Override
+    public Task scheduleTask(Runnable runnable) {
+        return scheduleDelayedTask(runnable, 1);
+    }
+
+    @Override
+    public Task scheduleDelayedTask(Runnable runnable, long delay) {
+        return scheduleRepeatingTask(runnable, delay, 0);
+    }
+
+    @Override
+    public Task scheduleRepeatingTask(Runnable runnable, long delay, long period) {
+        return enqueue(new RunnableTask(runnable), delay, period);
+    }
+
+    @Override
+    public void scheduleTask(Consumer<Task> consumer) {
+        scheduleDelayedTask(consumer, 1);
+    }
+
+    @Override
+    public void scheduleDelayedTask(Consumer<Task> consumer, long delay) {
+        enqueue(new ConsumerTask(consumer), delay, 0);
+    }
+
+    @Override
+    public <V> Future<V> scheduleTask(Callable<V> callable) {
+        return scheduleDelayedTask(callable, 1);
+    }
+
+    @Override
+    public <V> Future<V> scheduleDelayedTask(Callable<V> callable, long delay) {
+        return scheduleRepeatingTask(callable, delay, 0);
+    }
+
+    /**
+     * The returned future is completed with the result of the first run. Cancelling the future cancels the task.
+     */
+    @Override
+    public <V> Future<V> scheduleRepeatingTask(Callable<V> callable, long delay, long period) {
+        return enqueue(new CallableTask<>(callable), delay, period).future;
+    }
+
+    @Override
+    public <V> CompletableFuture<V> scheduleAsyncTask(Callable<V> callable) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        asyncExecutor.execute(() -> {
+            try {
+                V result = callable.call();
+                scheduleTask(() -> {
+                    future.complete(result);
+                });
+            } catch (Throwable e) {
+                scheduleTask(() -> {
+                    future.completeExceptionally(e);
+                });
+            }
+        });
+        return future;
+    }
+
+    private static final class RunnableTask extends Task {
+        private final Runnable runnable;
+
+        private RunnableTask(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+    }
+
+    private static final class ConsumerTask extends Task {
+        private final Consumer<Task> consumer;
+
+        private ConsumerTask(Consumer<Task> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            consumer.accept(this);
+        }
+    }
+
+    private static final class CallableTask<V> extends Task {
+        private final Callable<V> callable;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private CallableTask(Callable<V> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            if (future.isCancelled()) {
+                cancel();
+                return;
+            }
+            try {
+                future.complete(callable.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+                cancel();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            future.cancel(false);
+        }
+    }
+}
@@ -10,24 +10,34 @@ import engine.server.network.packet.PacketAlive;
 import engine.server.network.packet.PacketDisconnect;
 import engine.util.Side;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalServerChannel;
 import io.netty.handler.timeout.TimeoutException;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 
 import javax.annotation.Nullable;
 import java.net.SocketAddress;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class NetworkHandler extends SimpleChannelInboundHandler<Packet> {
 
-    private Channel channel;
+    /**
+     * Reading from the channel is paused when this many packets are waiting to be handled, and resumed when no more
+     * than {@link #RESUME_QUEUED_PACKETS} are left.
+     */
+    public static final int MAX_QUEUED_PACKETS = 1024;
+    public static final int RESUME_QUEUED_PACKETS = 256;
+
+    private volatile Channel channel;
     //which is THIS handler located
     private final Side instanceSide;
     private ConnectionStatus status;
@@ -75,7 +85,28 @@ public class NetworkHandler extends SimpleChannelInboundHandler<Packet> {
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         super.channelActive(ctx);
-        this.channel = ctx.channel();
+        Channel channel = ctx.channel();
+        synchronized (inactivePackets) {
+            // Written before the channel is published, so that they are sent before any packet sent from now on
+            if (!inactivePackets.isEmpty()) {
+                for (PendingPacket pendingPacket; (pendingPacket = inactivePackets.poll()) != null; ) {
+                    writePacket(channel, pendingPacket.packet, pendingPacket.onComplete, false);
+                }
+                channel.flush();
+            }
+            this.channel = channel;
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        // The channel never became active, so the packets waiting for it are never sent
+        synchronized (inactivePackets) {
+            for (PendingPacket pendingPacket; (pendingPacket = inactivePackets.poll()) != null; ) {
+                ReferenceCountUtil.release(pendingPacket.packet);
+            }
+        }
+        super.handlerRemoved(ctx);
     }
 
     @Override
@@ -94,8 +125,12 @@ public class NetworkHandler extends SimpleChannelInboundHandler<Packet> {
         if (this.channel != null && this.channel.isOpen()) {
             disconnectionReason = reason;
             this.channel.config().setAutoRead(false);
+            this.channel.flush();
             this.channel.close().awaitUninterruptibly();
-            postDisconnect();
+            if (inboundPackets == null) {
+                // Otherwise posted on the tick thread by the endpoint, after the queued packets
+                postDisconnect();
+            }
         }
     }
 
@@ -121,6 +156,14 @@ public class NetworkHandler extends SimpleChannelInboundHandler<Packet> {
         return context;
     }
 
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        // Send the responses to the packets read in this batch. Does not touch needsFlush, which tracks the writes of
+        // the other threads, whose write tasks may still be queued behind this one
+        ctx.flush();
+        super.channelReadComplete(ctx);
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Packet packet) throws Exception {
         packetInCounter++;
@@ -130,10 +173,94 @@ public class NetworkHandler extends SimpleChannelInboundHandler<Packet> {
                 sendPacket(new PacketAlive(true));
             }
         }
-        eventBus.post(new PacketReceivedEvent<>(this, packet));
+        Queue<Packet> inboundPackets = this.inboundPackets;
+        if (inboundPackets != null) {
+            // Released by SimpleChannelInboundHandler when this method returns
+            ReferenceCountUtil.retain(packet);
+            inboundPackets.add(packet);
+            if (queuedPacketCount.incrementAndGet() >= MAX_QUEUED_PACKETS && !readSuspended) {
+                readSuspended = true;
+                ctx.channel().config().setAutoRead(false);
+            }
+        } else {
+            eventBus.post(new PacketReceivedEvent<>(this, packet));
+        }
+    }
+
+    /**
+     * The packets received on the event loop and waiting to be handled on the tick thread, or null if the packets are
+     * handled on the event loop.
+     */
+    private volatile Queue<Packet> inboundPackets;
+    private final AtomicInteger queuedPacketCount = new AtomicInteger();
+    /**
+     * Whether reading has been paused because too many packets are waiting to be handled.
+     */
+    private volatile boolean readSuspended;
+
+    public boolean isQueueInboundPackets() {
+        return inboundPackets != null;
+    }
+
+    /**
+     * Queue the received packets instead of posting their events on the event loop, so that the packets are handled on
+     * the tick thread by {@link #handleQueuedPackets(int)}. Must be set before the channel becomes active.
+     */
+    public void setQueueInboundPackets(boolean queueInboundPackets) {
+        this.inboundPackets = queueInboundPackets ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    /**
+     * Post the events of the queued packets in the order received. Reading is resumed once enough packets have been
+     * handled.
+     *
+     * @param maxPackets the most packets handled, the rest are left for the next call
+     * @return the number of packets handled
+     */
+    public int handleQueuedPackets(int maxPackets) {
+        Queue<Packet> inboundPackets = this.inboundPackets;
+        if (inboundPackets == null) {
+            return 0;
+        }
+        int count = 0;
+        Packet packet;
+        while (count < maxPackets && (packet = inboundPackets.poll()) != null) {
+            count++;
+            queuedPacketCount.decrementAndGet();
+            try {
+                eventBus.post(new PacketReceivedEvent<>(this, packet));
+            } catch (RuntimeException e) {
+                if (channel != null) {
+                    // Handled on the event loop, the same as the exceptions thrown there
+                    channel.pipeline().fireExceptionCaught(e);
+                }
+            } finally {
+                ReferenceCountUtil.release(packet);
+            }
+        }
+        if (readSuspended && queuedPacketCount.get() <= RESUME_QUEUED_PACKETS && !exceptionMet && isChannelOpen()) {
+            readSuspended = false;
+            setAutoRead(true);
+        }
+        return count;
+    }
+
+    /**
+     * Drop the queued packets without handling them, e.g. when the connection has been closed.
+     */
+    public void discardQueuedPackets() {
+        Queue<Packet> inboundPackets = this.inboundPackets;
+        if (inboundPackets == null) {
+            return;
+        }
+        Packet packet;
+        while ((packet = inboundPackets.poll()) != null) {
+            queuedPacketCount.decrementAndGet();
+            ReferenceCountUtil.release(packet);
+        }
     }
 
-    private boolean exceptionMet = false;
+    private volatile boolean exceptionMet = false;
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
@@ -169,42 +296,124 @@ public class NetworkHandler extends SimpleChannelInboundHandler<Packet> {
         return channel != null && channel.isOpen();
     }
 
-    private List<PendingPacket> pendingPackets = new ArrayList<>();
+    /**
+     * Whether {@link #sendPacket(Packet)} flushes the channel. When disabled, packets are only written and sent on the
+     * next {@link #flush()}, so that all packets of a tick go out with one system call.
+     */
+    private volatile boolean autoFlush = true;
+    /**
+     * Whether packets have been written off the event loop since the last {@link #flush()}. Only set and cleared off
+     * the event loop, as the writes of other threads are queued as tasks which the event loop may not have run yet. The
+     * writes on the event loop are flushed by {@link #channelReadComplete(ChannelHandlerContext)}.
+     */
+    private volatile boolean needsFlush;
+
+    /**
+     * The packets sent before the channel is active, written once it is.
+     */
+    private final Queue<PendingPacket> inactivePackets = new ArrayDeque<>();
+
+    public boolean isAutoFlush() {
+        return autoFlush;
+    }
+
+    public void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+        if (autoFlush) {
+            flush();
+        }
+    }
 
-    // This method will not send packet immediately
+    // This method will not send packet immediately, the packet is sent on the next flush
     public void pendPacket(Packet packet) {
         pendPacket(packet, null);
     }
 
     public void pendPacket(Packet packet, @Nullable GenericFutureListener<Future<? super Void>> future) {
-        pendingPackets.add(new PendingPacket(packet, future));
+        sendPacketInternal(packet, future, false);
     }
 
-    public void sendPendingPackets() {
-        for (Iterator<PendingPacket> iterator = pendingPackets.iterator(); iterator.hasNext(); ) {
-            PendingPacket pendingPacket = iterator.next();
-            sendPacketInternal(pendingPacket.getPacket(), pendingPacket.getOnComplete());
-            iterator.remove();
+    /**
+     * Send the packets written since the last flush. Also flushes when the written bytes exceed the high water mark of
+     * the channel, so a tick sending a lot of data does not buffer all of it.
+     */
+    public void flush() {
+        if (channel == null) {
+            return;
+        }
+        if (channel.eventLoop().inEventLoop()) {
+            // The writes of the other threads may still be queued, so their flag is left for them
+            channel.flush();
+        } else if (needsFlush) {
+            needsFlush = false;
+            channel.flush();
         }
     }
 
+    /**
+     * @deprecated the packets written with {@link #pendPacket(Packet)} are sent by {@link #flush()}, or by the next
+     * {@link #sendPacket(Packet)} when auto flush is enabled
+     */
+    @Deprecated
+    public void sendPendingPackets() {
+        flush();
+    }
+
     public void sendPacket(Packet packet) {
         sendPacket(packet, null);
     }
 
+    /**
+     * @param future notified once the packet has been sent, the channel is always flushed for such packets
+     */
     public void sendPacket(Packet packet, @Nullable GenericFutureListener<Future<? super Void>> future) {
-        sendPendingPackets();
-        sendPacketInternal(packet, future);
+        sendPacketInternal(packet, future, autoFlush || future != null);
     }
 
-    private void sendPacketInternal(Packet packet, GenericFutureListener<Future<? super Void>> future) {
-        if (channel != null) {
-            packetOutCounter++;
-            var channelFuture = channel.writeAndFlush(packet);
-            if (future != null) {
-                channelFuture.addListener(future);
+    private void sendPacketInternal(Packet packet, GenericFutureListener<Future<? super Void>> future, boolean flush) {
+        if (channel == null) {
+            synchronized (inactivePackets) {
+                if (channel == null) {
+                    inactivePackets.add(new PendingPacket(packet, future));
+                    return;
+                }
             }
-            channelFuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+        }
+        writePacket(channel, packet, future, flush);
+    }
+
+    private void writePacket(Channel channel, Packet packet, GenericFutureListener<Future<? super Void>> future, boolean flush) {
+        packetOutCounter++;
+        ChannelFuture channelFuture;
+        boolean inEventLoop = channel.eventLoop().inEventLoop();
+        if (flush) {
+            if (!inEventLoop) {
+                // Flushes the writes queued before from this thread too
+                needsFlush = false;
+            }
+            channelFuture = channel.writeAndFlush(packet);
+        } else {
+            if (!inEventLoop) {
+                needsFlush = true;
+            }
+            channelFuture = channel.write(packet);
+            if (!channel.isWritable()) {
+                flush();
+            }
+        }
+        if (future != null) {
+            channelFuture.addListener(future);
+        }
+        channelFuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+    }
+
+    private static final class PendingPacket {
+        private final Packet packet;
+        private final GenericFutureListener<Future<? super Void>> onComplete;
+
+        private PendingPacket(Packet packet, GenericFutureListener<Future<? super Void>> onComplete) {
+            this.packet = packet;
+            this.onComplete = onComplete;
         }
     }
 
@@ -231,23 +440,4 @@ public class NetworkHandler extends SimpleChannelInboundHandler<Packet> {
             }
         }
     }
-
-    private static class PendingPacket {
-        private Packet packet;
-        private GenericFutureListener<Future<? super Void>> onComplete;
-
-        private PendingPacket(Packet packet, GenericFutureListener<Future<? super Void>> onComplete) {
-            this.packet = packet;
-            this.onComplete = onComplete;
-        }
-
-        public Packet getPacket() {
-            return packet;
-        }
-
-        public GenericFutureListener<Future<? super Void>> getOnComplete() {
-            return onComplete;
-        }
-    }
-
 }
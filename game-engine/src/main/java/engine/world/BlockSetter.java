@@ -15,6 +15,14 @@ public interface BlockSetter {
     @Nonnull
     Block setBlock(@Nonnull BlockPos pos, @Nonnull Block block, @Nonnull BlockChangeCause cause, boolean shouldNotify);
 
+    /**
+     * Set block id in a specific position directly, without resolving the blocks, posting block change events or
+     * notifying the neighbors. Meant for world generation and other bulk changes.
+     *
+     * @return the previous block id in the specified position
+     */
+    int setBlockId(int x, int y, int z, int blockId, @Nonnull BlockChangeCause cause);
+
     @Nonnull
     Block destroyBlock(@Nonnull BlockPos pos, @Nonnull BlockChangeCause cause);
 }
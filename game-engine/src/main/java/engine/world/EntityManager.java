@@ -7,6 +7,7 @@ import org.joml.Vector3dc;
 import org.joml.Vector3fc;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public interface EntityManager {
@@ -23,6 +24,11 @@ public interface EntityManager {
 
     List<Entity> getEntities(Predicate<Entity> predicate);
 
+    /**
+     * Visit all entities without copying them. Entities must not be spawned or destroyed whilst visiting.
+     */
+    void forEachEntity(Consumer<? super Entity> visitor);
+
     <T extends Entity> List<T> getEntitiesWithType(Class<T> entityType);
 
     List<Entity> getEntitiesWithBoundingBox(AABBd boundingBox);
@@ -31,6 +37,24 @@ public interface EntityManager {
 
     List<Entity> getEntitiesWithSphere(double centerX, double centerY, double centerZ, double radius);
 
+    /**
+     * Visit the entities intersecting the box without collecting them. Only the entities near the box are tested.
+     * Entities must not be spawned or destroyed whilst visiting.
+     */
+    void forEachEntityWithBoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Consumer<? super Entity> visitor);
+
+    /**
+     * Visit the entities intersecting the sphere without collecting them. Only the entities near the sphere are
+     * tested. Entities must not be spawned or destroyed whilst visiting.
+     */
+    void forEachEntityWithSphere(double centerX, double centerY, double centerZ, double radius, Consumer<? super Entity> visitor);
+
+    /**
+     * Move the entity, keeping the index used by the range queries up to date, so that the queries made later in the
+     * same tick find the entity at its new position. Use this instead of setting the position of the entity directly.
+     */
+    void setEntityPosition(Entity entity, double x, double y, double z);
+
     EntityHitResult raycastEntity(Vector3fc from, Vector3fc dir, float distance);
 
     void doDestroyEntity(Entity entity);
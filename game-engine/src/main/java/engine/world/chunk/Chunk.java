@@ -52,5 +52,12 @@ public interface Chunk {
 
     Block setBlock(@Nonnull BlockPos pos, @Nonnull Block block, @Nonnull BlockChangeCause cause);
 
+    /**
+     * Set block id in a specific position without resolving the block
+     *
+     * @return the previous block id in the specified position
+     */
+    int setBlockId(int x, int y, int z, int blockId, @Nonnull BlockChangeCause cause);
+
     boolean isAirChunk();
 }
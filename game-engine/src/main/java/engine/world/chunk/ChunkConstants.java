@@ -30,6 +30,18 @@ public interface ChunkConstants {
         return getChunkIndex(blockPos.x() >> CHUNK_X_BITS, blockPos.y() >> CHUNK_Y_BITS, blockPos.z() >> CHUNK_Z_BITS);
     }
 
+    static int getChunkX(long chunkIndex) {
+        return (int) (chunkIndex << 1 >> 43);
+    }
+
+    static int getChunkY(long chunkIndex) {
+        return (int) (chunkIndex << 22 >> 43);
+    }
+
+    static int getChunkZ(long chunkIndex) {
+        return (int) (chunkIndex << 43 >> 43);
+    }
+
     private static long toUnsigned(int value) {
         return value & 0x1fffff;
     }
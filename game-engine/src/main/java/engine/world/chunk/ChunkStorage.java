@@ -1,6 +1,7 @@
 package engine.world.chunk;
 
 import java.nio.file.Path;
+import java.util.Collection;
 
 public interface ChunkStorage extends AutoCloseable {
 
@@ -10,5 +11,9 @@ public interface ChunkStorage extends AutoCloseable {
 
     void save(Chunk chunk);
 
+    default void saveAll(Collection<? extends Chunk> chunks) {
+        chunks.forEach(this::save);
+    }
+
     void close();
 }
@@ -4,5 +4,10 @@ import engine.world.chunk.Chunk;
 
 public interface ChunkGenerator {
 
+    /**
+     * Generate the blocks of a newly created chunk.
+     * <p>
+     * Chunks are generated on the chunk loader threads, so this method may be called concurrently for different chunks.
+     */
     void generate(Chunk chunk);
 }
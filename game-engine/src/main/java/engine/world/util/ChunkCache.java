@@ -74,6 +74,6 @@ public class ChunkCache implements BlockGetter {
 
     @Override
     public boolean isAirBlock(int x, int y, int z) {
-        return getBlock(x, y, z) == Registries.getBlockRegistry().air();
+        return getBlockId(x, y, z) == Registries.getBlockRegistry().getId(Registries.getBlockRegistry().air());
     }
 }
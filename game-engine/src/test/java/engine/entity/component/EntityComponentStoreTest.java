@@ -0,0 +1,78 @@
+package engine.entity.component;
+
+import engine.component.Component;
+import engine.entity.BaseEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityComponentStoreTest {
+
+    static class Health implements Component {
+    }
+
+    static class Speed implements Component {
+    }
+
+    static class TestEntity extends BaseEntity {
+        TestEntity(int id) {
+            super(id, null, 0, 0, 0);
+        }
+    }
+
+    @Test
+    public void moveComponents() {
+        EntityComponentStore store = new EntityComponentStore();
+        TestEntity entity = new TestEntity(0);
+        Health health = new Health();
+        entity.setComponent(Health.class, health);
+
+        entity.setComponentStore(store);
+        assertSame(health, entity.getComponent(Health.class).orElseThrow());
+        assertEquals(1, store.count(Health.class));
+        entity.setComponent(Speed.class, new Speed());
+        assertEquals(Set.of(Health.class, Speed.class), entity.getComponents());
+
+        entity.setComponentStore(null);
+        assertEquals(0, store.count(Health.class));
+        assertSame(health, entity.getComponent(Health.class).orElseThrow());
+        assertTrue(entity.hasComponent(Speed.class));
+    }
+
+    @Test
+    public void forEach() {
+        EntityComponentStore store = new EntityComponentStore();
+        List<TestEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            TestEntity entity = new TestEntity(i);
+            entity.setComponentStore(store);
+            entity.setComponent(Health.class, new Health());
+            if (i % 2 == 0) entity.setComponent(Speed.class, new Speed());
+            entities.add(entity);
+        }
+        entities.get(4).removeComponent(Speed.class);
+        entities.get(3).removeComponent(Health.class);
+
+        List<Integer> visited = new ArrayList<>();
+        store.forEach(Health.class, Speed.class, (entity, health, speed) -> {
+            assertSame(health, entity.getComponent(Health.class).orElseThrow());
+            assertSame(speed, entity.getComponent(Speed.class).orElseThrow());
+            visited.add(entity.getId());
+        });
+        visited.sort(null);
+        assertEquals(List.of(0, 2, 6, 8), visited);
+
+        List<Integer> visitedWith = new ArrayList<>();
+        store.forEachWith(entity -> visitedWith.add(entity.getId()), Speed.class, Health.class);
+        visitedWith.sort(null);
+        assertEquals(visited, visitedWith);
+
+        int[] count = new int[1];
+        store.forEach(Health.class, (entity, health) -> count[0]++);
+        assertEquals(9, count[0]);
+    }
+}
@@ -0,0 +1,50 @@
+package engine.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickerTest {
+
+    @Test
+    public void fixedRate() {
+        AtomicReference<Ticker> ticker = new AtomicReference<>();
+        ticker.set(new Ticker(() -> {
+            if (ticker.get().getTickCount() == 19) ticker.get().stop();
+        }, 100));
+
+        long start = System.nanoTime();
+        ticker.get().run();
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(20, ticker.get().getTickCount());
+        assertTrue(elapsed >= 190_000_000L, "Ticked too fast: " + elapsed + "ns");
+        assertEquals(0, ticker.get().getSkippedTickCount());
+    }
+
+    @Test
+    public void catchUp() {
+        AtomicReference<Ticker> ticker = new AtomicReference<>();
+        ticker.set(new Ticker(() -> {
+            long count = ticker.get().getTickCount();
+            if (count == 0) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+            } else if (count == 15) {
+                ticker.get().stop();
+            }
+        }, 100));
+
+        ticker.get().run();
+
+        assertEquals(16, ticker.get().getTickCount());
+        assertEquals(1, ticker.get().getOverrunCount());
+        assertTrue(ticker.get().getSkippedTickCount() > 0);
+        assertTrue(ticker.get().getMspt() >= 200D / 16);
+    }
+}
@@ -0,0 +1,87 @@
+package engine.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelSchedulerTest {
+
+    @Test
+    public void delayedTask() {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(Runnable::run);
+        List<Long> runs = new ArrayList<>();
+        scheduler.scheduleDelayedTask(() -> {
+            runs.add(scheduler.getCurrentTick());
+        }, 300);
+        scheduler.scheduleTask(() -> {
+            runs.add(scheduler.getCurrentTick());
+        });
+
+        tick(scheduler, 600);
+        assertEquals(List.of(1L, 300L), runs);
+    }
+
+    @Test
+    public void repeatingTask() {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(Runnable::run);
+        List<Long> runs = new ArrayList<>();
+        Task task = scheduler.scheduleRepeatingTask(() -> {
+            runs.add(scheduler.getCurrentTick());
+        }, 10, 256);
+
+        tick(scheduler, 600);
+        assertEquals(List.of(10L, 266L, 522L), runs);
+
+        task.cancel();
+        tick(scheduler, 600);
+        assertEquals(3, runs.size());
+    }
+
+    @Test
+    public void delayAndStop() {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(Runnable::run);
+        List<Long> runs = new ArrayList<>();
+        scheduler.scheduleTask(task -> {
+            runs.add(scheduler.getCurrentTick());
+            if (runs.size() < 3) task.delay(5);
+        });
+
+        tick(scheduler, 20);
+        assertEquals(List.of(1L, 6L, 11L), runs);
+    }
+
+    @Test
+    public void callableTask() throws Exception {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(Runnable::run);
+        Future<String> future = scheduler.scheduleDelayedTask(() -> "done", 2);
+        Future<String> cancelled = scheduler.scheduleDelayedTask(() -> "cancelled", 2);
+        cancelled.cancel(false);
+
+        tick(scheduler, 1);
+        assertFalse(future.isDone());
+        tick(scheduler, 1);
+        assertEquals("done", future.get());
+        assertTrue(cancelled.isCancelled());
+    }
+
+    @Test
+    public void asyncTask() {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(Runnable::run);
+        CompletableFuture<Thread> future = scheduler.scheduleAsyncTask(Thread::currentThread);
+        assertFalse(future.isDone());
+
+        tick(scheduler, 1);
+        assertTrue(future.isDone());
+    }
+
+    private static void tick(TickedScheduler scheduler, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            scheduler.tick();
+        }
+    }
+}
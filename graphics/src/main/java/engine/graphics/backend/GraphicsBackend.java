@@ -6,6 +6,8 @@ import engine.graphics.graph.RenderGraph;
 import engine.graphics.graph.RenderGraphInfo;
 import engine.graphics.util.GPUInfo;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
@@ -33,6 +35,15 @@ public interface GraphicsBackend {
 
     <V> Future<V> submitTask(Callable<V> callable);
 
+    /**
+     * Submit a task uploading data to the GPU, run on the rendering thread within the upload budget of a frame.
+     *
+     * @see UploadQueue#submit(Object, double, long, Runnable, Runnable)
+     */
+    Future<Void> submitUpload(@Nonnull Object key, double priority, long bytes, @Nonnull Runnable upload, @Nullable Runnable discard);
+
+    UploadQueue getUploadQueue();
+
     void render(float tpf);
 
     void init();
@@ -0,0 +1,153 @@
+package engine.graphics.backend;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pending GPU uploads of a graphics backend, run a few at a time so that a burst of uploads is spread over several
+ * frames instead of stalling one.
+ * <p>
+ * The uploads are run lowest priority first, e.g. nearest to the camera first, until the time or byte budget of the
+ * frame is used up. At least one upload is run per frame, however large it is. An upload submitted with the key of a
+ * pending one replaces it.
+ */
+@ThreadSafe
+public final class UploadQueue {
+
+    public static final String TIME_BUDGET_PROPERTY = "engine.graphics.uploadTimeBudget";
+    public static final String BYTE_BUDGET_PROPERTY = "engine.graphics.uploadByteBudget";
+
+    private final PriorityQueue<Upload> queue = new PriorityQueue<>();
+    private final Map<Object, Upload> pending = new HashMap<>();
+    private long sequence;
+
+    private volatile long timeBudget;
+    private volatile long byteBudget;
+
+    public UploadQueue() {
+        this(TimeUnit.MILLISECONDS.toNanos(Long.getLong(TIME_BUDGET_PROPERTY, 4)),
+                Long.getLong(BYTE_BUDGET_PROPERTY, 16L << 20));
+    }
+
+    /**
+     * @param timeBudget the time budget of a frame in nanoseconds
+     * @param byteBudget the byte budget of a frame
+     */
+    public UploadQueue(long timeBudget, long byteBudget) {
+        setBudget(timeBudget, byteBudget);
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    public void setBudget(long timeBudget, long byteBudget) {
+        if (timeBudget <= 0 || byteBudget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive");
+        }
+        this.timeBudget = timeBudget;
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * @param discard run instead of the upload if it is cancelled or replaced, e.g. to release its data
+     */
+    public Future<Void> submit(@Nonnull Object key, double priority, long bytes, @Nonnull Runnable upload, @Nullable Runnable discard) {
+        Upload replaced;
+        Upload task;
+        synchronized (this) {
+            task = new Upload(key, priority, bytes, sequence++, upload, discard);
+            replaced = pending.put(key, task);
+            queue.add(task);
+        }
+        if (replaced != null) {
+            // Left in the queue, skipped when polled
+            replaced.cancel(false);
+        }
+        return task;
+    }
+
+    /**
+     * Run the uploads of a frame. Must be called on the rendering thread.
+     */
+    public void run() {
+        long start = System.nanoTime();
+        long bytes = 0;
+        boolean first = true;
+        while (true) {
+            Upload task;
+            synchronized (this) {
+                task = queue.peek();
+                if (task == null) return;
+                if (!first && !task.isCancelled() &&
+                        (bytes + task.bytes > byteBudget || System.nanoTime() - start >= timeBudget)) return;
+                queue.poll();
+                pending.remove(task.key, task);
+            }
+            if (task.isCancelled()) continue;
+            task.run();
+            bytes += task.bytes;
+            first = false;
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Cancel all pending uploads, e.g. when the backend is disposed.
+     */
+    public void clear() {
+        Upload[] tasks;
+        synchronized (this) {
+            tasks = queue.toArray(new Upload[0]);
+            queue.clear();
+            pending.clear();
+        }
+        for (Upload task : tasks) {
+            task.cancel(false);
+        }
+    }
+
+    private static final class Upload extends FutureTask<Void> implements Comparable<Upload> {
+        private final Object key;
+        private final double priority;
+        private final long bytes;
+        private final long sequence;
+        private final Runnable discard;
+
+        private Upload(Object key, double priority, long bytes, long sequence, Runnable upload, Runnable discard) {
+            super(upload, null);
+            this.key = key;
+            this.priority = priority;
+            this.bytes = bytes;
+            this.sequence = sequence;
+            this.discard = discard;
+        }
+
+        @Override
+        protected void done() {
+            if (discard != null && isCancelled()) {
+                discard.run();
+            }
+        }
+
+        @Override
+        public int compareTo(Upload o) {
+            int result = Double.compare(priority, o.priority);
+            return result != 0 ? result : Long.compare(sequence, o.sequence);
+        }
+    }
+}
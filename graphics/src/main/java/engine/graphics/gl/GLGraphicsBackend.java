@@ -3,6 +3,7 @@ package engine.graphics.gl;
 import engine.graphics.backend.GraphicsBackend;
 import engine.graphics.backend.GraphicsBackendFactory;
 import engine.graphics.backend.ResourceFactory;
+import engine.graphics.backend.UploadQueue;
 import engine.graphics.display.Window;
 import engine.graphics.display.WindowHelper;
 import engine.graphics.gl.graph.GLRenderGraph;
@@ -22,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -46,6 +48,7 @@ public final class GLGraphicsBackend implements GraphicsBackend {
 
     private final List<GLRenderGraph> renderGraphs = new ArrayList<>();
     private final List<RunnableFuture<?>> pendingTasks = new ArrayList<>();
+    private final UploadQueue uploadQueue = new UploadQueue();
 
     @Override
     public String getName() {
@@ -124,10 +127,21 @@ public final class GLGraphicsBackend implements GraphicsBackend {
         }
     }
 
+    @Override
+    public Future<Void> submitUpload(@Nonnull Object key, double priority, long bytes, @Nonnull Runnable upload, @Nullable Runnable discard) {
+        return uploadQueue.submit(key, priority, bytes, upload, discard);
+    }
+
+    @Override
+    public UploadQueue getUploadQueue() {
+        return uploadQueue;
+    }
+
     @Override
     public void render(float timeToLastUpdate) {
         Cleaner.clean();
         runPendingTasks();
+        uploadQueue.run();
         renderGraphs.forEach(renderGraph -> renderGraph.draw(timeToLastUpdate));
         GLFW.glfwPollEvents();
     }
@@ -203,6 +217,7 @@ public final class GLGraphicsBackend implements GraphicsBackend {
 
     @Override
     public void dispose() {
+        uploadQueue.clear();
         GLFWContext.terminate();
     }
 
@@ -5,6 +5,7 @@ import engine.graphics.GraphicsEngine;
 import engine.graphics.backend.GraphicsBackend;
 import engine.graphics.backend.GraphicsBackendFactory;
 import engine.graphics.backend.ResourceFactory;
+import engine.graphics.backend.UploadQueue;
 import engine.graphics.display.Window;
 import engine.graphics.display.WindowHelper;
 import engine.graphics.glfw.GLFWContext;
@@ -27,6 +28,8 @@ import org.lwjgl.vulkan.VkDebugReportCallbackEXT;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -53,6 +56,7 @@ public class VKGraphicsBackend implements GraphicsBackend {
 
     private final List<VKRenderGraph> renderGraphs = new ArrayList<>();
     private final List<RunnableFuture<?>> pendingTasks = new ArrayList<>();
+    private final UploadQueue uploadQueue = new UploadQueue();
 
     public VKGraphicsBackend() {
 
@@ -133,10 +137,21 @@ public class VKGraphicsBackend implements GraphicsBackend {
         }
     }
 
+    @Override
+    public Future<Void> submitUpload(@Nonnull Object key, double priority, long bytes, @Nonnull Runnable upload, @Nullable Runnable discard) {
+        return uploadQueue.submit(key, priority, bytes, upload, discard);
+    }
+
+    @Override
+    public UploadQueue getUploadQueue() {
+        return uploadQueue;
+    }
+
     @Override
     public void render(float timeFromLastUpdate) {
         Cleaner.clean();
         runPendingTasks();
+        uploadQueue.run();
         var imageAcquireSemaphore = Semaphore.createSemaphore(device);
         var renderCompleteSemaphore = Semaphore.createSemaphore(device);
         int nextImage = swapchain.acquireNextImage(imageAcquireSemaphore, null);
@@ -280,6 +295,7 @@ public class VKGraphicsBackend implements GraphicsBackend {
 
     @Override
     public void dispose() {
+        uploadQueue.clear();
         vkDestroyDebugReportCallbackEXT(vulkanInstance.getNativeInstance(), debugCallback, null);
         vulkanInstance.free();
     }
@@ -0,0 +1,71 @@
+package engine.graphics.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UploadQueueTest {
+
+    @Test
+    public void nearestFirst() {
+        UploadQueue queue = new UploadQueue(TimeUnit.SECONDS.toNanos(1), 1024);
+        List<String> runs = new ArrayList<>();
+        queue.submit("far", 100, 1, () -> runs.add("far"), null);
+        queue.submit("near", 1, 1, () -> runs.add("near"), null);
+        queue.submit("middle", 10, 1, () -> runs.add("middle"), null);
+
+        queue.run();
+        assertEquals(List.of("near", "middle", "far"), runs);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void byteBudget() {
+        UploadQueue queue = new UploadQueue(TimeUnit.SECONDS.toNanos(1), 100);
+        List<Integer> runs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int index = i;
+            queue.submit(i, i, 40, () -> runs.add(index), null);
+        }
+
+        queue.run();
+        assertEquals(List.of(0, 1), runs);
+        queue.run();
+        assertEquals(List.of(0, 1, 2, 3), runs);
+        queue.run();
+        assertEquals(List.of(0, 1, 2, 3, 4), runs);
+    }
+
+    @Test
+    public void oversizedUploadStillRuns() {
+        UploadQueue queue = new UploadQueue(TimeUnit.SECONDS.toNanos(1), 100);
+        List<String> runs = new ArrayList<>();
+        queue.submit("large", 0, 1000, () -> runs.add("large"), null);
+        queue.submit("small", 1, 1, () -> runs.add("small"), null);
+
+        queue.run();
+        assertEquals(List.of("large"), runs);
+    }
+
+    @Test
+    public void coalesce() {
+        UploadQueue queue = new UploadQueue(TimeUnit.SECONDS.toNanos(1), 1024);
+        List<String> runs = new ArrayList<>();
+        List<String> discards = new ArrayList<>();
+        Future<Void> first = queue.submit("chunk", 1, 1, () -> runs.add("first"), () -> discards.add("first"));
+        Future<Void> second = queue.submit("chunk", 2, 1, () -> runs.add("second"), () -> discards.add("second"));
+        assertEquals(1, queue.size());
+        assertTrue(first.isCancelled());
+        assertEquals(List.of("first"), discards);
+
+        queue.run();
+        assertEquals(List.of("second"), runs);
+        assertTrue(second.isDone());
+        assertEquals(List.of("first"), discards);
+    }
+}
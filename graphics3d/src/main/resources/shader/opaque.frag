@@ -125,7 +125,14 @@ vec4 computeSpotLight(SpotLight light, vec3 position, vec3 normal)
 }
 
 void main() {
-    texColor = v_Color * texture(u_Texture, v_TexCoord);
+    if (v_Color.a < 0.0) {
+        // A merged voxel face: the color is the atlas region of the texture, and the texture coordinates count the tiles
+        vec2 regionSize = vec2(v_Color.z, -v_Color.a);
+        texColor = textureGrad(u_Texture, v_Color.xy + fract(v_TexCoord) * regionSize,
+                               dFdx(v_TexCoord) * regionSize, dFdy(v_TexCoord) * regionSize);
+    } else {
+        texColor = v_Color * texture(u_Texture, v_TexCoord);
+    }
 
     vec4 lightColor = vec4(0.0, 0.0, 0.0, 0.0);
 